@@ -0,0 +1,106 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import wordnet.bench.WordNetTarget;
+
+/*
+ * Default-package adapter that lets the benchmarks in wordnet.bench reach WordNet and Outcast
+ */
+public class WordNetBridge implements WordNetTarget {
+	private WordNet wordNet;
+	private Outcast outcast;
+
+	@Override
+	public void load(String synsets, String hypernyms, boolean ancestorIndex, long cacheEntries){
+		WordNetOptions options = new WordNetOptions().setAncestorIndex(ancestorIndex).setCacheEntries(cacheEntries);
+		use(new WordNet(synsets, hypernyms, options));
+	}
+
+	@Override
+	public void openSnapshot(String file){
+		use(WordNet.openSnapshot(file));
+	}
+
+	@Override
+	public void writeSnapshot(String file){
+		try{
+			wordNet.writeSnapshot(file);
+		} catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public String[] nouns(){
+		ArrayList<String> nouns = new ArrayList<>();
+		for(String noun : wordNet.nouns()){
+			nouns.add(noun);
+		}
+		return nouns.toArray(new String[0]);
+	}
+
+	@Override
+	public String[] mostPolysemous(String synsets, int count){
+		HashMap<String, Integer> senses = new HashMap<>();
+		try{
+			for(String line : Files.readAllLines(Paths.get(synsets))){
+				for(String noun : line.split(",")[1].split(" ")){
+					senses.merge(noun, 1, Integer::sum);
+				}
+			}
+		} catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+
+		return senses.entrySet().stream()
+				.sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+				.limit(count)
+				.map(Map.Entry::getKey)
+				.toArray(String[]::new);
+	}
+
+	@Override
+	public int distance(String nounA, String nounB){
+		return wordNet.distance(nounA, nounB);
+	}
+
+	@Override
+	public String sap(String nounA, String nounB){
+		return wordNet.sap(nounA, nounB);
+	}
+
+	@Override
+	public int[] distances(String[] nounsA, String[] nounsB){
+		return wordNet.distances(nounsA, nounsB);
+	}
+
+	@Override
+	public void clearCache(){
+		wordNet.cache().clear();
+	}
+
+	@Override
+	public String outcast(String[] nouns){
+		return outcast.outcast(nouns);
+	}
+
+	@Override
+	public boolean isRooted(){
+		return wordNet.graph().isRooted();
+	}
+
+	@Override
+	public boolean isDAG(){
+		return wordNet.graph().isDAG();
+	}
+
+	private void use(WordNet wn){
+		this.wordNet = wn;
+		this.outcast = new Outcast(wn);
+	}
+}
@@ -0,0 +1,52 @@
+package wordnet.bench;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/*
+ * Locations of the input files and seeded inputs shared by the benchmarks
+ * The data directory is taken from the wordnet.data system property and defaults to the working directory
+ */
+final class Data {
+	static final long SEED = 42;
+
+	private Data(){
+	}
+
+	static String file(String name){
+		return Paths.get(System.getProperty("wordnet.data", "."), name).toString();
+	}
+
+	static String synsets(){
+		return file("synsets.txt");
+	}
+
+	static String hypernyms(){
+		return file("hypernyms.txt");
+	}
+
+	/*
+	 * Reads the whitespace-separated nouns of one of the bundled outcast files
+	 */
+	static String[] outcastFile(String name){
+		try{
+			return new String(Files.readAllBytes(Paths.get(file(name))), "UTF-8").trim().split("\\s+");
+		} catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/*
+	 * Draws count nouns from the vocabulary with the given random source
+	 */
+	static String[] sample(String[] nouns, int count, Random random){
+		String[] sample = new String[count];
+		for(int i = 0; i < count; i++){
+			sample[i] = nouns[random.nextInt(nouns.length)];
+		}
+		return sample;
+	}
+}
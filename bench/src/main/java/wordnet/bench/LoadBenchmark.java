@@ -0,0 +1,66 @@
+package wordnet.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Startup cost: building a WordNet from the text files, with and without the ancestor index, and
+ * opening a binary snapshot
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoadBenchmark {
+	private File snapshot;
+
+	@Setup(Level.Trial)
+	public void writeSnapshot() throws IOException{
+		snapshot = File.createTempFile("wordnet", ".snap");
+		WordNetTarget target = WordNetTarget.create();
+		target.load(Data.synsets(), Data.hypernyms(), false, 1);
+		target.writeSnapshot(snapshot.getPath());
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteSnapshot(){
+		snapshot.delete();
+	}
+
+	@Benchmark
+	public WordNetTarget loadText(){
+		WordNetTarget target = WordNetTarget.create();
+		target.load(Data.synsets(), Data.hypernyms(), false, 1);
+		return target;
+	}
+
+	@Benchmark
+	public WordNetTarget loadTextWithAncestorIndex(){
+		WordNetTarget target = WordNetTarget.create();
+		target.load(Data.synsets(), Data.hypernyms(), true, 1);
+		return target;
+	}
+
+	@Benchmark
+	public WordNetTarget openSnapshot(){
+		WordNetTarget target = WordNetTarget.create();
+		target.openSnapshot(snapshot.getPath());
+		return target;
+	}
+}
@@ -0,0 +1,52 @@
+package wordnet.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Outcast over the bundled outcast files and over synthetic inputs of random nouns ("random:n")
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OutcastBenchmark {
+	@Param({ "outcast5.txt", "outcast8.txt", "outcast11.txt", "random:200", "random:1000" })
+	public String input;
+
+	private WordNetTarget target;
+	private String[] nouns;
+
+	@Setup(Level.Trial)
+	public void load(){
+		target = WordNetTarget.create();
+		target.load(Data.synsets(), Data.hypernyms(), false, 1);
+
+		if(input.startsWith("random:")){
+			int count = Integer.parseInt(input.substring("random:".length()));
+			nouns = Data.sample(target.nouns(), count, new Random(Data.SEED));
+		} else{
+			nouns = Data.outcastFile(input);
+		}
+	}
+
+	@Benchmark
+	public String outcast(){
+		return target.outcast(nouns);
+	}
+}
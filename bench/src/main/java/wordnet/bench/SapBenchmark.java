@@ -0,0 +1,112 @@
+package wordnet.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Per-query cost of distance() and sap() on random noun pairs drawn from a fixed seed
+ *
+ * Cold queries run against an instance whose cache is too small to hold the pairs, so every call
+ * searches the graph; warm queries run against an instance whose cache already holds every pair.
+ * The polysemous benchmarks pair up the nouns with the most senses, the worst case for the search.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SapBenchmark {
+	@Param({ "4096" })
+	public int pairs;
+
+	@Param({ "false", "true" })
+	public boolean ancestorIndex;
+
+	private WordNetTarget cold;
+	private WordNetTarget warm;
+	private String[] nounsA;
+	private String[] nounsB;
+	private String[] polysemousA;
+	private String[] polysemousB;
+	private int cursor;
+
+	@Setup(Level.Trial)
+	public void load(){
+		cold = WordNetTarget.create();
+		cold.load(Data.synsets(), Data.hypernyms(), ancestorIndex, 1);
+		warm = WordNetTarget.create();
+		warm.load(Data.synsets(), Data.hypernyms(), ancestorIndex, 4L * pairs);
+
+		Random random = new Random(Data.SEED);
+		String[] vocabulary = cold.nouns();
+		nounsA = Data.sample(vocabulary, pairs, random);
+		nounsB = Data.sample(vocabulary, pairs, random);
+
+		String[] polysemous = cold.mostPolysemous(Data.synsets(), 16);
+		polysemousA = Data.sample(polysemous, pairs, random);
+		polysemousB = Data.sample(polysemous, pairs, random);
+
+		for(int i = 0; i < pairs; i++){
+			warm.distance(nounsA[i], nounsB[i]);
+		}
+	}
+
+	private int next(){
+		int i = cursor;
+		cursor = (i + 1 == pairs) ? 0 : i + 1;
+		return i;
+	}
+
+	@Benchmark
+	public int distanceCold(){
+		int i = next();
+		return cold.distance(nounsA[i], nounsB[i]);
+	}
+
+	@Benchmark
+	public String sapCold(){
+		int i = next();
+		return cold.sap(nounsA[i], nounsB[i]);
+	}
+
+	@Benchmark
+	public int distanceWarm(){
+		int i = next();
+		return warm.distance(nounsA[i], nounsB[i]);
+	}
+
+	@Benchmark
+	public String sapWarm(){
+		int i = next();
+		return warm.sap(nounsA[i], nounsB[i]);
+	}
+
+	@Benchmark
+	public int distancePolysemousCold(){
+		int i = next();
+		return cold.distance(polysemousA[i], polysemousB[i]);
+	}
+
+	/*
+	 * Whole batch per call; divide by the pairs parameter for the per-pair cost
+	 */
+	@Benchmark
+	public int[] distancesBatchCold(){
+		cold.clearCache();
+		return cold.distances(nounsA, nounsB);
+	}
+}
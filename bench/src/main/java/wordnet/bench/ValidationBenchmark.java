@@ -0,0 +1,44 @@
+package wordnet.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Cost of the rooted and acyclic checks over the full hypernym graph
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidationBenchmark {
+	private WordNetTarget target;
+
+	@Setup(Level.Trial)
+	public void load(){
+		target = WordNetTarget.create();
+		target.load(Data.synsets(), Data.hypernyms(), false, 1);
+	}
+
+	@Benchmark
+	public boolean isRooted(){
+		return target.isRooted();
+	}
+
+	@Benchmark
+	public boolean isDAG(){
+		return target.isDAG();
+	}
+}
@@ -0,0 +1,58 @@
+package wordnet.bench;
+
+/*
+ * The WordNet operations exercised by the benchmarks
+ *
+ * The WordNet classes live in the default package, which named packages cannot import, and JMH does
+ * not accept benchmarks in the default package. The default-package WordNetBridge implements this
+ * interface and is looked up reflectively once per trial, so the measured calls are plain interface calls.
+ */
+public interface WordNetTarget {
+
+	/*
+	 * Loads the text files, with or without the ancestor index, and a cache bounded to the given entries
+	 */
+	void load(String synsets, String hypernyms, boolean ancestorIndex, long cacheEntries);
+
+	/*
+	 * Opens a binary snapshot
+	 */
+	void openSnapshot(String file);
+
+	/*
+	 * Writes a binary snapshot of the loaded instance
+	 */
+	void writeSnapshot(String file);
+
+	String[] nouns();
+
+	/*
+	 * Returns the nouns that belong to the most synsets, most polysemous first
+	 */
+	String[] mostPolysemous(String synsets, int count);
+
+	int distance(String nounA, String nounB);
+
+	String sap(String nounA, String nounB);
+
+	int[] distances(String[] nounsA, String[] nounsB);
+
+	void clearCache();
+
+	String outcast(String[] nouns);
+
+	boolean isRooted();
+
+	boolean isDAG();
+
+	/*
+	 * Creates a new, unloaded target
+	 */
+	static WordNetTarget create(){
+		try{
+			return (WordNetTarget) Class.forName("WordNetBridge").getDeclaredConstructor().newInstance();
+		} catch(ReflectiveOperationException e){
+			throw new IllegalStateException("WordNetBridge is missing from the benchmark classpath", e);
+		}
+	}
+}
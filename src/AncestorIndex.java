@@ -0,0 +1,255 @@
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/*
+ * Precomputed hypernym closure of every vertex in a CompactDigraph.
+ *
+ * The row of vertex v lists each of its ancestors (v itself included) with the length of the
+ * shortest path up to it. Rows are packed back to back: ids[offsets[v]] .. ids[offsets[v+1]-1]
+ * hold the ancestor ids in ascending order, and dists holds the matching distances in parallel.
+ * With the rows sorted, the shortest ancestral path of two vertices is a merge-join of their rows.
+ */
+public final class AncestorIndex {
+	private final int[] offsets;		// start of each vertex's row, V+1 entries
+	private final int[] ids;			// ancestor ids, sorted within each row
+	private final short[] dists;		// distance to the ancestor at the same position in ids
+	private final long buildNanos;		// wall-clock time taken to build the index
+
+	/*
+	 * Builds the index for every vertex of the given graph
+	 * Rows are computed in parallel: one pass sizes them, a second pass fills them in place
+	 */
+	public AncestorIndex(CompactDigraph G){
+		if(G == null)
+			throw new NullPointerException("Argument given was null");
+
+		long startTime = System.nanoTime();
+		int V = G.numVertices();
+		ThreadLocal<RowBuilder> builders = ThreadLocal.withInitial(() -> new RowBuilder(G));
+
+		int[] sizes = new int[V + 1];
+		IntStream.range(0, V).parallel().forEach(v -> sizes[v + 1] = builders.get().closure(v));
+		for(int v = 1; v <= V; v++){
+			sizes[v] += sizes[v - 1];
+		}
+
+		this.offsets = sizes;
+		this.ids = new int[offsets[V]];
+		this.dists = new short[offsets[V]];
+		IntStream.range(0, V).parallel().forEach(v -> builders.get().fill(v, ids, dists, offsets[v]));
+		this.buildNanos = System.nanoTime() - startTime;
+	}
+
+	/*
+	 * Builds the index of a grown graph from a previous index, recomputing only the listed rows
+	 * Every other row is copied unchanged; vertices beyond the previous index must be listed
+	 */
+	AncestorIndex(AncestorIndex previous, CompactDigraph G, int[] rebuilt){
+		long startTime = System.nanoTime();
+		int V = G.numVertices();
+		ThreadLocal<RowBuilder> builders = ThreadLocal.withInitial(() -> new RowBuilder(G));
+
+		int[] sizes = new int[V + 1];
+		for(int v = 0; v < previous.numVertices(); v++){
+			sizes[v + 1] = previous.rowEnd(v) - previous.rowStart(v);
+		}
+		IntStream.range(0, rebuilt.length).parallel().forEach(r -> sizes[rebuilt[r] + 1] = builders.get().closure(rebuilt[r]));
+		for(int v = 1; v <= V; v++){
+			sizes[v] += sizes[v - 1];
+		}
+
+		this.offsets = sizes;
+		this.ids = new int[offsets[V]];
+		this.dists = new short[offsets[V]];
+		boolean[] stale = new boolean[V];
+		for(int v : rebuilt){
+			stale[v] = true;
+		}
+		for(int v = 0; v < previous.numVertices(); v++){
+			if(!stale[v]){
+				System.arraycopy(previous.ids, previous.offsets[v], ids, offsets[v], offsets[v + 1] - offsets[v]);
+				System.arraycopy(previous.dists, previous.offsets[v], dists, offsets[v], offsets[v + 1] - offsets[v]);
+			}
+		}
+		IntStream.range(0, rebuilt.length).parallel().forEach(r -> builders.get().fill(rebuilt[r], ids, dists, offsets[rebuilt[r]]));
+		this.buildNanos = System.nanoTime() - startTime;
+	}
+
+	/*
+	 * Wraps packed rows that were built elsewhere, e.g. read back from a snapshot
+	 */
+	AncestorIndex(int[] offsets, int[] ids, short[] dists, long buildNanos){
+		this.offsets = offsets;
+		this.ids = ids;
+		this.dists = dists;
+		this.buildNanos = buildNanos;
+	}
+
+	/*
+	 * Returns the number of vertices indexed
+	 */
+	public int numVertices(){
+		return offsets.length - 1;
+	}
+
+	/*
+	 * Returns the total number of (vertex, ancestor) entries stored
+	 */
+	public int numEntries(){
+		return ids.length;
+	}
+
+	/*
+	 * Returns the approximate heap footprint of the packed arrays, in bytes
+	 */
+	public long memoryBytes(){
+		return 4L * offsets.length + 4L * ids.length + 2L * dists.length;
+	}
+
+	/*
+	 * Returns how long the index took to build, in nanoseconds
+	 */
+	public long buildNanos(){
+		return buildNanos;
+	}
+
+	/*
+	 * Returns the index of the first entry in v's row; the row runs up to rowEnd(v), exclusive
+	 */
+	public int rowStart(int v){
+		return offsets[v];
+	}
+
+	/*
+	 * Returns the index one past the last entry in v's row
+	 */
+	public int rowEnd(int v){
+		return offsets[v + 1];
+	}
+
+	/*
+	 * Returns the ancestor id stored at the given entry
+	 */
+	public int ancestorAt(int entry){
+		return ids[entry];
+	}
+
+	/*
+	 * Returns the distance stored at the given entry
+	 */
+	public int distanceAt(int entry){
+		return dists[entry];
+	}
+
+	/* --- Raw packed arrays, for writing snapshots; callers must not modify them --- */
+
+	int[] offsets(){
+		return offsets;
+	}
+
+	int[] ids(){
+		return ids;
+	}
+
+	short[] dists(){
+		return dists;
+	}
+
+	/*
+	 * Merge-joins the rows of v and w; returns the shortest ancestral distance in the high 32 bits
+	 * and the ancestor in the low 32 bits, or -1 if v and w share no ancestor
+	 */
+	public long join(int v, int w){
+		int i = offsets[v], iEnd = offsets[v + 1];
+		int j = offsets[w], jEnd = offsets[w + 1];
+		int best = Integer.MAX_VALUE;
+		int bestAncestor = -1;
+
+		while(i < iEnd && j < jEnd){
+			int x = ids[i];
+			int y = ids[j];
+			if(x < y){
+				i++;
+			} else if(x > y){
+				j++;
+			} else{
+				int dist = dists[i] + dists[j];
+				if(dist < best){
+					best = dist;
+					bestAncestor = x;
+				}
+				i++;
+				j++;
+			}
+		}
+
+		if(bestAncestor == -1)
+			return -1;
+		return ((long) best << 32) | bestAncestor;
+	}
+
+	/*
+	 * Per-thread BFS state used while building rows
+	 */
+	private static final class RowBuilder {
+		private final CompactDigraph graph;
+		private final int[] dist;		// distance from the current vertex, -1 if not reached
+		private final int[] queue;		// vertices reached from the current vertex, in BFS order
+		private int count;				// number of vertices in queue
+
+		RowBuilder(CompactDigraph G){
+			this.graph = G;
+			this.dist = new int[G.numVertices()];
+			this.queue = new int[G.numVertices()];
+			Arrays.fill(dist, -1);
+		}
+
+		/*
+		 * Returns the number of ancestors of v, v included
+		 */
+		int closure(int v){
+			search(v);
+			int size = count;
+			clear();
+			return size;
+		}
+
+		/*
+		 * Writes v's sorted row into the packed arrays starting at the given position
+		 */
+		void fill(int v, int[] ids, short[] dists, int start){
+			search(v);
+			System.arraycopy(queue, 0, ids, start, count);
+			Arrays.sort(ids, start, start + count);
+			for(int i = start, end = start + count; i < end; i++){
+				int d = dist[ids[i]];
+				if(d > Short.MAX_VALUE)
+					throw new IllegalStateException("Ancestor distance " + d + " does not fit the index");
+				dists[i] = (short) d;
+			}
+			clear();
+		}
+
+		private void search(int v){
+			dist[v] = 0;
+			queue[count++] = v;
+			for(int head = 0; head < count; head++){
+				int source = queue[head];
+				for(int i = graph.outgoingStart(source), end = graph.outgoingEnd(source); i < end; i++){
+					int target = graph.target(i);
+					if(dist[target] == -1){
+						dist[target] = dist[source] + 1;
+						queue[count++] = target;
+					}
+				}
+			}
+		}
+
+		private void clear(){
+			for(int i = 0; i < count; i++){
+				dist[queue[i]] = -1;
+			}
+			count = 0;
+		}
+	}
+}
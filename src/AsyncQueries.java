@@ -0,0 +1,156 @@
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/*
+ * Runs blocking WordNet queries as CompletableFutures that can be cancelled or time out
+ *
+ * A query is stopped by interrupting the thread running it: the SAP and Outcast loops check the
+ * interrupt flag cooperatively and abandon the search with a CancellationException. Cancelling the
+ * returned future, or letting its timeout expire, interrupts the query only while it is running,
+ * so a pooled thread never keeps an interrupt meant for an earlier task.
+ */
+final class AsyncQueries {
+	private static final int QUEUE_PER_THREAD = 1024;		// queued queries per default pool thread before rejecting
+
+	private static volatile Executor defaultExecutor;		// bounded pool, created on first use
+	private static volatile ScheduledExecutorService timer;		// fires timeouts, created on first use
+
+	private AsyncQueries(){
+	}
+
+	/*
+	 * Runs the query on the executor; completes exceptionally with a TimeoutException if it has not finished
+	 * within the timeout, or never times out if the timeout is not positive
+	 */
+	static <T> CompletableFuture<T> submit(Supplier<T> query, Executor executor, long timeout, TimeUnit unit){
+		if(query == null || executor == null || unit == null)
+			throw new NullPointerException("Argument given was null");
+
+		Task<T> task = new Task<>(query);
+		try{
+			executor.execute(task);
+		} catch(RejectedExecutionException e){
+			task.result.completeExceptionally(e);
+			return task.result;
+		}
+
+		if(timeout > 0){
+			ScheduledFuture<?> expiry = timer().schedule(() -> task.result.completeExceptionally(
+					new TimeoutException("Query did not finish within " + timeout + " " + unit.toString().toLowerCase())), timeout, unit);
+			task.result.whenComplete((value, failure) -> expiry.cancel(false));
+		}
+		task.result.whenComplete((value, failure) -> {
+			if(failure != null)
+				task.interrupt();
+		});
+		return task.result;
+	}
+
+	/*
+	 * Returns the shared bounded pool: one daemon thread per processor and a bounded queue, rejecting beyond it
+	 */
+	static Executor defaultExecutor(){
+		if(defaultExecutor == null){
+			synchronized(AsyncQueries.class){
+				if(defaultExecutor == null){
+					int threads = Runtime.getRuntime().availableProcessors();
+					defaultExecutor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+							new ArrayBlockingQueue<>(threads * QUEUE_PER_THREAD), daemonThreads("wordnet-query"));
+				}
+			}
+		}
+		return defaultExecutor;
+	}
+
+	/*
+	 * Throws a CancellationException if the current thread has been interrupted, keeping the interrupt flag set
+	 */
+	static void checkCancelled(){
+		if(Thread.currentThread().isInterrupted())
+			throw new CancellationException("Query was cancelled");
+	}
+
+	/*
+	 * Throws a CancellationException if the given thread has been interrupted; used by parallel workers on behalf of their caller
+	 */
+	static void checkCancelled(Thread caller){
+		if(caller.isInterrupted())
+			throw new CancellationException("Query was cancelled");
+	}
+
+	private static ScheduledExecutorService timer(){
+		if(timer == null){
+			synchronized(AsyncQueries.class){
+				if(timer == null)
+					timer = Executors.newSingleThreadScheduledExecutor(daemonThreads("wordnet-query-timeout"));
+			}
+		}
+		return timer;
+	}
+
+	private static ThreadFactory daemonThreads(String name){
+		AtomicInteger count = new AtomicInteger();
+		return task -> {
+			Thread thread = new Thread(task, name + "-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/*
+	 * One submitted query and the thread currently running it
+	 */
+	private static final class Task<T> implements Runnable {
+		final CompletableFuture<T> result = new CompletableFuture<>();
+		private final Supplier<T> query;
+		private Thread runner;		// thread running the query; null before it starts and after it ends
+		private boolean interrupted;		// whether interrupt() interrupted the runner
+		private boolean alreadyInterrupted;	// whether the runner was interrupted before the query started
+
+		Task(Supplier<T> query){
+			this.query = query;
+		}
+
+		@Override
+		public void run(){
+			synchronized(this){
+				if(result.isDone())
+					return;
+				runner = Thread.currentThread();
+				alreadyInterrupted = runner.isInterrupted();
+			}
+			try{
+				result.complete(query.get());
+			} catch(Throwable t){
+				result.completeExceptionally(t);
+			} finally{
+				synchronized(this){
+					runner = null;
+					// Clear an interrupt this task sent so it does not leak into the pool thread's next task, but leave
+					// one meant for the thread itself, as when a same-thread executor runs the query on the caller
+					if(interrupted && !alreadyInterrupted)
+						Thread.interrupted();
+				}
+			}
+		}
+
+		synchronized void interrupt(){
+			if(runner != null){
+				runner.interrupt();
+				interrupted = true;
+			}
+		}
+	}
+}
@@ -0,0 +1,347 @@
+import java.util.Arrays;
+import java.util.Scanner;
+
+import structs.graphs.Edge;
+import structs.graphs.Vertex;
+
+/*
+ * Read-only, int-indexed digraph stored in compressed sparse row (CSR) form.
+ *
+ * Vertices are the ids 0..V-1. The outgoing (hypernym) edges of vertex v are the
+ * entries hypernymTargets[hypernymOffsets[v]] .. hypernymTargets[hypernymOffsets[v+1]-1];
+ * the incoming (hyponym) edges are stored the same way in a reverse CSR.
+ */
+public final class CompactDigraph {
+	private final int V;						// number of vertices
+	private final int E;						// number of edges
+	private final int[] hypernymOffsets;		// start of each vertex's outgoing edges, V+1 entries
+	private final int[] hypernymTargets;		// heads of the outgoing edges, grouped by tail
+	private final int[] hyponymOffsets;			// start of each vertex's incoming edges, V+1 entries
+	private final int[] hyponymSources;			// tails of the incoming edges, grouped by head
+
+	/*
+	 * Builds a digraph with V vertices from the E edges from[i] -> to[i]
+	 */
+	public CompactDigraph(int V, int[] from, int[] to, int E){
+		if(from == null || to == null)
+			throw new NullPointerException("Argument given was null");
+		if(V < 0 || E < 0 || E > from.length || E > to.length)
+			throw new IllegalArgumentException("Invalid vertex or edge count");
+
+		this.V = V;
+		this.E = E;
+
+		for(int i = 0; i < E; i++){
+			if(from[i] < 0 || from[i] >= V || to[i] < 0 || to[i] >= V)
+				throw new IllegalArgumentException("Edge " + from[i] + "->" + to[i] + " refers to an unknown vertex");
+		}
+
+		this.hypernymOffsets = new int[V + 1];
+		this.hypernymTargets = new int[E];
+		group(from, to, E, hypernymOffsets, hypernymTargets);
+
+		this.hyponymOffsets = new int[V + 1];
+		this.hyponymSources = new int[E];
+		group(to, from, E, hyponymOffsets, hyponymSources);
+	}
+
+	/*
+	 * Wraps CSR arrays that were built elsewhere, e.g. read back from a snapshot
+	 */
+	CompactDigraph(int[] hypernymOffsets, int[] hypernymTargets, int[] hyponymOffsets, int[] hyponymSources){
+		this.V = hypernymOffsets.length - 1;
+		this.E = hypernymTargets.length;
+		this.hypernymOffsets = hypernymOffsets;
+		this.hypernymTargets = hypernymTargets;
+		this.hyponymOffsets = hyponymOffsets;
+		this.hyponymSources = hyponymSources;
+	}
+	
+	/*
+	 * Initializes a digraph from the specified input stream (vertex count, edge count, then edge pairs)
+	 */
+	public CompactDigraph(Scanner file){
+		this(readGraph(file));
+	}
+
+	private CompactDigraph(EdgeList edges){
+		this(edges.V, edges.from, edges.to, edges.count);
+	}
+
+	/*
+	 * Builds a compact copy of an object digraph whose vertex elements are the ids 0..V-1
+	 */
+	public static <E> CompactDigraph fromDigraph(Digraph<E> G){
+		if(G == null)
+			throw new NullPointerException("Argument given was null");
+
+		int V = G.numVertices();
+		int E = G.numEdges();
+		int[] from = new int[E];
+		int[] to = new int[E];
+		int count = 0;
+
+		for(Vertex<Integer> v : G.vertices()){
+			for(Edge<E> e : G.outgoingEdges(v)){
+				from[count] = v.getElement();
+				to[count] = G.opposite(v, e).getElement();
+				count++;
+			}
+		}
+		return new CompactDigraph(V, from, to, count);
+	}
+
+	/*
+	 * Materializes an object digraph view of this graph, for callers that still need Vertex/Edge references
+	 */
+	public Digraph<Boolean> toDigraph(){
+		Digraph<Boolean> G = new Digraph<>(V);
+		for(int v = 0; v < V; v++){
+			G.insertVertex(v);
+		}
+		for(int v = 0; v < V; v++){
+			Vertex<Integer> tail = G.getVertexByID(v);
+			for(int i = hypernymOffsets[v], end = hypernymOffsets[v + 1]; i < end; i++){
+				G.insertEdge(tail, G.getVertexByID(hypernymTargets[i]), true);
+			}
+		}
+		return G;
+	}
+
+	/*
+	 * Returns a copy of this graph grown to V vertices with the given edges added after the existing ones
+	 * This graph is left unchanged, so readers holding it are not disturbed
+	 */
+	CompactDigraph withEdges(int V, EdgeList added){
+		if(V < this.V)
+			throw new IllegalArgumentException("A graph cannot lose vertices");
+
+		int[] from = new int[E + added.count];
+		int[] to = new int[from.length];
+		int count = 0;
+		for(int v = 0; v < this.V; v++){
+			for(int i = hypernymOffsets[v], end = hypernymOffsets[v + 1]; i < end; i++){
+				from[count] = v;
+				to[count] = hypernymTargets[i];
+				count++;
+			}
+		}
+		System.arraycopy(added.from, 0, from, count, added.count);
+		System.arraycopy(added.to, 0, to, count, added.count);
+		return new CompactDigraph(V, from, to, from.length);
+	}
+
+	/*
+	 * Returns the number of vertices
+	 */
+	public int numVertices(){
+		return V;
+	}
+
+	/*
+	 * Returns the number of edges
+	 */
+	public int numEdges(){
+		return E;
+	}
+
+	/*
+	 * Returns the number of hypernyms (outgoing edges) of v
+	 */
+	public int outDegree(int v){
+		return hypernymOffsets[v + 1] - hypernymOffsets[v];
+	}
+
+	/*
+	 * Returns the number of hyponyms (incoming edges) of v
+	 */
+	public int inDegree(int v){
+		return hyponymOffsets[v + 1] - hyponymOffsets[v];
+	}
+
+	/*
+	 * Returns the index of the first outgoing edge of v; edges run up to outgoingEnd(v), exclusive
+	 */
+	public int outgoingStart(int v){
+		return hypernymOffsets[v];
+	}
+
+	/*
+	 * Returns the index one past the last outgoing edge of v
+	 */
+	public int outgoingEnd(int v){
+		return hypernymOffsets[v + 1];
+	}
+
+	/*
+	 * Returns the head (hypernym) of the outgoing edge at the given index
+	 */
+	public int target(int edge){
+		return hypernymTargets[edge];
+	}
+
+	/*
+	 * Returns the index of the first incoming edge of v; edges run up to incomingEnd(v), exclusive
+	 */
+	public int incomingStart(int v){
+		return hyponymOffsets[v];
+	}
+
+	/*
+	 * Returns the index one past the last incoming edge of v
+	 */
+	public int incomingEnd(int v){
+		return hyponymOffsets[v + 1];
+	}
+
+	/*
+	 * Returns the tail (hyponym) of the incoming edge at the given index
+	 */
+	public int source(int edge){
+		return hyponymSources[edge];
+	}
+
+	/* --- Raw CSR arrays, for writing snapshots; callers must not modify them --- */
+	
+	int[] hypernymOffsets(){
+		return hypernymOffsets;
+	}
+	
+	int[] hypernymTargets(){
+		return hypernymTargets;
+	}
+	
+	int[] hyponymOffsets(){
+		return hyponymOffsets;
+	}
+	
+	int[] hyponymSources(){
+		return hyponymSources;
+	}
+
+	/*
+	 * Checks whether this graph is rooted, i.e. it has a single vertex with no hypernyms
+	 * and every vertex can reach it
+	 */
+	public boolean isRooted(){
+		int root = -1;
+		for(int v = 0; v < V; v++){
+			if(outDegree(v) == 0){
+				if(root != -1)
+					return false;
+				root = v;
+			}
+		}
+		if(root == -1)
+			return false;
+
+		// Walk the hyponym edges down from the root, counting every vertex reached
+		boolean[] marked = new boolean[V];
+		int[] stack = new int[V];
+		int top = 0;
+		int count = 0;
+
+		stack[top++] = root;
+		marked[root] = true;
+		while(top > 0){
+			int v = stack[--top];
+			count++;
+			for(int i = hyponymOffsets[v], end = hyponymOffsets[v + 1]; i < end; i++){
+				int w = hyponymSources[i];
+				if(!marked[w]){
+					marked[w] = true;
+					stack[top++] = w;
+				}
+			}
+		}
+		return count == V;
+	}
+
+	/*
+	 * Checks whether this digraph is acyclic by repeatedly removing vertices with no remaining hyponyms
+	 */
+	public boolean isDAG(){
+		int[] remaining = new int[V];
+		int[] queue = new int[V];
+		int head = 0;
+		int tail = 0;
+
+		for(int v = 0; v < V; v++){
+			remaining[v] = inDegree(v);
+			if(remaining[v] == 0)
+				queue[tail++] = v;
+		}
+
+		while(head < tail){
+			int v = queue[head++];
+			for(int i = hypernymOffsets[v], end = hypernymOffsets[v + 1]; i < end; i++){
+				int w = hypernymTargets[i];
+				if(--remaining[w] == 0)
+					queue[tail++] = w;
+			}
+		}
+		return tail == V;
+	}
+
+	/*
+	 * Counting-sorts the edges keys[i] -> values[i] by key into the given offsets/targets arrays
+	 */
+	private static void group(int[] keys, int[] values, int E, int[] offsets, int[] targets){
+		for(int i = 0; i < E; i++){
+			offsets[keys[i] + 1]++;
+		}
+		for(int v = 1; v < offsets.length; v++){
+			offsets[v] += offsets[v - 1];
+		}
+
+		int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+		for(int i = 0; i < E; i++){
+			targets[next[keys[i]]++] = values[i];
+		}
+	}
+
+	/*
+	 * Reads a vertex count, an edge count and then edge pairs from the given scanner
+	 */
+	private static EdgeList readGraph(Scanner file){
+		if(file == null)
+			throw new NullPointerException("Argument given was null");
+
+		EdgeList edges = new EdgeList(file.nextInt());
+		file.nextInt();
+		while(file.hasNextInt()){
+			edges.add(file.nextInt(), file.nextInt());
+		}
+		return edges;
+	}
+
+	/*
+	 * Growable pair of primitive arrays used to collect edges before the CSR arrays are built
+	 */
+	static final class EdgeList {
+		int V;				// number of vertices the edges refer to
+		int[] from;			// tails of the collected edges
+		int[] to;			// heads of the collected edges
+		int count;			// number of edges collected so far
+
+		EdgeList(int V){
+			this.V = V;
+			this.from = new int[Math.max(16, V)];
+			this.to = new int[from.length];
+		}
+
+		void add(int v, int w){
+			if(count == from.length){
+				from = Arrays.copyOf(from, count * 2);
+				to = Arrays.copyOf(to, count * 2);
+			}
+			from[count] = v;
+			to[count] = w;
+			count++;
+		}
+
+		CompactDigraph build(){
+			return new CompactDigraph(V, from, to, count);
+		}
+	}
+}
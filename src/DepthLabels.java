@@ -0,0 +1,131 @@
+import java.util.Arrays;
+
+/*
+ * Topological order and depth-to-root labels of every vertex of an acyclic CompactDigraph
+ *
+ * Depths count hypernym edges from a vertex up to a root (a vertex with no hypernyms): minDepth is the
+ * shortest such path and maxDepth the longest. The order lists every vertex after all of its hypernyms,
+ * so roots come first. All labels are computed in one O(V+E) pass and stored as primitive arrays.
+ */
+public final class DepthLabels {
+	private final int[] order;			// vertices, each after all of its hypernyms
+	private final int[] rank;			// position of each vertex in order
+	private final int[] minDepth;		// length of the shortest path from each vertex to a root
+	private final int[] maxDepth;		// length of the longest path from each vertex to a root
+	private final int root;				// the only root, or -1 if there are several
+	private final int height;			// largest maxDepth of any vertex
+
+	private DepthLabels(int[] order, int[] rank, int[] minDepth, int[] maxDepth, int root, int height){
+		this.order = order;
+		this.rank = rank;
+		this.minDepth = minDepth;
+		this.maxDepth = maxDepth;
+		this.root = root;
+		this.height = height;
+	}
+
+	/*
+	 * Labels every vertex of the given graph, or returns null if the graph has a cycle
+	 * Vertices are released root-first once all of their hypernyms are labelled, relaxing both depths along the way
+	 */
+	static DepthLabels build(CompactDigraph G){
+		int V = G.numVertices();
+		int[] order = new int[V];
+		int[] remaining = new int[V];
+		int[] minDepth = new int[V];
+		int[] maxDepth = new int[V];
+		int head = 0;
+		int tail = 0;
+
+		Arrays.fill(minDepth, Integer.MAX_VALUE);
+		for(int v = 0; v < V; v++){
+			remaining[v] = G.outDegree(v);
+			if(remaining[v] == 0){
+				minDepth[v] = 0;
+				order[tail++] = v;
+			}
+		}
+		int root = (tail == 1) ? order[0] : -1;
+
+		while(head < tail){
+			int v = order[head++];
+			for(int i = G.incomingStart(v), end = G.incomingEnd(v); i < end; i++){
+				int w = G.source(i);
+				minDepth[w] = Math.min(minDepth[w], minDepth[v] + 1);
+				maxDepth[w] = Math.max(maxDepth[w], maxDepth[v] + 1);
+				if(--remaining[w] == 0)
+					order[tail++] = w;
+			}
+		}
+		if(tail != V)
+			return null;
+
+		int[] rank = new int[V];
+		int height = 0;
+		for(int i = 0; i < V; i++){
+			rank[order[i]] = i;
+			height = Math.max(height, maxDepth[order[i]]);
+		}
+		return new DepthLabels(order, rank, minDepth, maxDepth, root, height);
+	}
+
+	/*
+	 * Returns the vertex at the given position of the topological order
+	 */
+	public int vertexAt(int position){
+		return order[position];
+	}
+
+	/*
+	 * Returns the position of v in the topological order; every hypernym of v has a lower rank
+	 */
+	public int rank(int v){
+		return rank[v];
+	}
+
+	/*
+	 * Returns the length of the shortest hypernym path from v to a root
+	 */
+	public int minDepth(int v){
+		return minDepth[v];
+	}
+
+	/*
+	 * Returns the length of the longest hypernym path from v to a root
+	 */
+	public int maxDepth(int v){
+		return maxDepth[v];
+	}
+
+	/*
+	 * Returns the smallest minDepth among the given vertices
+	 */
+	public int minDepth(int[] vertices){
+		int depth = Integer.MAX_VALUE;
+		for(int v : vertices){
+			depth = Math.min(depth, minDepth[v]);
+		}
+		return depth;
+	}
+
+	/*
+	 * Returns the only root, or -1 if the graph has several
+	 */
+	public int root(){
+		return root;
+	}
+
+	/*
+	 * Returns the length of the longest hypernym path in the graph
+	 */
+	public int height(){
+		return height;
+	}
+
+	/*
+	 * Returns the approximate heap footprint of the label arrays, in bytes
+	 */
+	public long memoryBytes(){
+		return 4L * (order.length + rank.length + minDepth.length + maxDepth.length);
+	}
+}
@@ -1,4 +1,6 @@
+import java.util.ArrayDeque;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Scanner;
 
@@ -73,17 +75,19 @@ public class Digraph<E> extends AdjacencyMapGraph<Integer,E>{
 	}
 	
 	/*
-	 * Checks whether this graph is rooted
+	 * Checks whether this graph is rooted, i.e. it has a single vertex with no outgoing edges
+	 * and every vertex can reach it
 	 */
 	public boolean isRooted(){
+		Vertex<Integer> root = null;
 		for(Vertex<Integer> v : vertices()){
 			if(outDegree(v) == 0){
-				if(isConnected(v)){
-					return true;
-				}
-			}	
-		} 
-		return false;
+				if(root != null)
+					return false;
+				root = v;
+			}
+		}
+		return root != null && isConnected(root);
 	}
 	
 	/*
@@ -103,16 +107,22 @@ public class Digraph<E> extends AdjacencyMapGraph<Integer,E>{
 	}
 	
 	/*
-	 * Finds all nodes reachable from vertex v
+	 * Finds all nodes that can reach vertex v, walking the incoming edges with an explicit stack
 	 */
-	private int reachableNodes(Vertex<Integer> v, Map<Vertex<Integer>, Boolean> marked, Integer markCount){
+	private int reachableNodes(Vertex<Integer> v, Map<Vertex<Integer>, Boolean> marked, int markCount){
+		ArrayDeque<Vertex<Integer>> stack = new ArrayDeque<>();
 		marked.put(v, true);
-		markCount++;
+		stack.push(v);
 		
-		for(Edge<E> e : incomingEdges(v)){
-			Vertex<Integer> w = opposite(v, e);
-			if(marked.get(w) == null){
-				markCount = reachableNodes(w, marked, markCount);
+		while(!stack.isEmpty()){
+			Vertex<Integer> u = stack.pop();
+			markCount++;
+			for(Edge<E> e : incomingEdges(u)){
+				Vertex<Integer> w = opposite(u, e);
+				if(marked.get(w) == null){
+					marked.put(w, true);
+					stack.push(w);
+				}
 			}
 		}
 		return markCount;
@@ -122,11 +132,18 @@ public class Digraph<E> extends AdjacencyMapGraph<Integer,E>{
 	 * Performs depth-first search on this digraph, starting at vertex v
 	 */
 	private void DFS(Vertex<Integer> v, Map<Vertex<Integer>, Boolean> marked){
+		ArrayDeque<Vertex<Integer>> stack = new ArrayDeque<>();
 		marked.put(v, true);
-		for(Edge<E> e : outgoingEdges(v)){
-			Vertex<Integer> w= opposite(v, e);
-			if(!marked.get(w)){
-				DFS(w, marked);
+		stack.push(v);
+		
+		while(!stack.isEmpty()){
+			Vertex<Integer> u = stack.pop();
+			for(Edge<E> e : outgoingEdges(u)){
+				Vertex<Integer> w = opposite(u, e);
+				if(marked.get(w) == null){
+					marked.put(w, true);
+					stack.push(w);
+				}
 			}
 		}
 	}
@@ -138,25 +155,24 @@ public class Digraph<E> extends AdjacencyMapGraph<Integer,E>{
 		boolean hasSource = findSource();
 		
 		if(!hasSource)
-			return false;
+			return numVertices() == 0;
 		
-		boolean isAcyclic = true;
 		HashMap<Vertex<Integer>, Boolean> visited = new HashMap<>();
 		HashMap<Vertex<Integer>, Boolean> visiting = new HashMap<>();
 
 		for(Vertex<Integer> v : vertices()){
 			visited.put(v, false);
+			visiting.put(v, false);
 		}
 		
 		for(Vertex<Integer> v : vertices()){
 			if(!visited.get(v)){
-				isAcyclic = findCycle(v, visited, visiting);
-				if(isAcyclic)
-					return true;
+				if(findCycle(v, visited, visiting))
+					return false;
 			}
 		}
 		
-		return isAcyclic;
+		return true;
 	}
 	
 	/*
@@ -178,23 +194,39 @@ public class Digraph<E> extends AdjacencyMapGraph<Integer,E>{
 	
 	/*
 	 * Attempts to find a cycle starting from the given source vertex
+	 * The search keeps its own stack of vertices and unexplored edges, so deep graphs cannot overflow the call stack
 	 */
 	public boolean findCycle(Vertex<Integer> source, Map<Vertex<Integer>, Boolean> visited, Map<Vertex<Integer>, Boolean> visiting){
+		ArrayDeque<Vertex<Integer>> path = new ArrayDeque<>();
+		ArrayDeque<Iterator<Edge<E>>> edges = new ArrayDeque<>();
 		visiting.put(source, true);
-		boolean cycleFound = false; 
+		path.push(source);
+		edges.push(outgoingEdges(source).iterator());
 		
-		for(Edge<E> e : outgoingEdges(source)){
-			Vertex<Integer> w = opposite(source, e);
-			if(visited.get(w)){
+		while(!path.isEmpty()){
+			Vertex<Integer> v = path.peek();
+			Iterator<Edge<E>> next = edges.peek();
+			
+			if(!next.hasNext()){
+				visiting.put(v, false);
+				visited.put(v, true);
+				path.pop();
+				edges.pop();
+				continue;
+			}
+			
+			Vertex<Integer> w = opposite(v, next.next());
+			if(Boolean.TRUE.equals(visited.get(w))){
 				continue;
-			} else if(visiting.get(w)){
+			} else if(Boolean.TRUE.equals(visiting.get(w))){
 				return true;
 			} else {
-				cycleFound = findCycle(w, visited, visiting);
+				visiting.put(w, true);
+				path.push(w);
+				edges.push(outgoingEdges(w).iterator());
 			}
-		}	
+		}
 		
-		visited.put(source, true);
-		return cycleFound;
+		return false;
 	}
 }
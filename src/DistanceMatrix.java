@@ -0,0 +1,116 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.stream.IntStream;
+
+/*
+ * Streams rows of SAP distances from source nouns to a fixed set of target nouns
+ *
+ * The ancestor table of every target is built once when the matrix is created, and each source's table
+ * once per row, so a row costs one merge-join per target instead of a search. Rows are computed in parallel
+ * across sources and handed out as they are finished; nothing goes through the WordNet's pair cache, and
+ * memory beyond the target tables is bounded by the rows in flight. All tables come from the WordNet
+ * version current when the matrix was created, so an update applied meanwhile does not mix versions.
+ */
+public final class DistanceMatrix {
+	private static final int ROWS_PER_THREAD = 4;		// rows computed per worker before a block of write() is flushed
+
+	private final TaxonomyVersion version;
+	private final SAP.AncestorTable[] targets;		// ancestor table of each target noun, in target order
+	private final boolean normalizeNouns;			// resolve sources like the WordNet resolved the targets
+
+	DistanceMatrix(TaxonomyVersion version, SAP.AncestorTable[] targets, boolean normalizeNouns){
+		this.version = version;
+		this.targets = targets;
+		this.normalizeNouns = normalizeNouns;
+	}
+
+	/*
+	 * Receives the rows of rows(); may be called from several threads at once, in no particular order
+	 */
+	public interface RowConsumer {
+		void accept(int source, int[] distances);
+	}
+
+	/*
+	 * Returns the number of target nouns, the length of every row
+	 */
+	public int numTargets(){
+		return targets.length;
+	}
+
+	/*
+	 * Returns the distances from the source noun to every target noun, in target order
+	 */
+	public int[] row(String source){
+		int[] distances = new int[targets.length];
+		fill(table(source), distances);
+		return distances;
+	}
+
+	/*
+	 * Computes the row of every source noun in parallel and hands each to the consumer as it is finished
+	 * The consumer owns the arrays it is given
+	 */
+	public void rows(String[] sources, RowConsumer consumer){
+		if(sources == null || consumer == null)
+			throw new NullPointerException("Argument given was null");
+
+		Thread caller = Thread.currentThread();
+		IntStream.range(0, sources.length).parallel().forEach(s -> {
+			AsyncQueries.checkCancelled(caller);
+			consumer.accept(s, row(sources[s]));
+		});
+	}
+
+	/*
+	 * Writes the row of every source noun to the channel, in source order, as big-endian 32-bit ints
+	 * Rows are computed in parallel a block at a time and each block is written before the next is started,
+	 * so at most a few rows per worker are held in memory however many sources there are
+	 */
+	public void write(String[] sources, WritableByteChannel channel) throws IOException{
+		if(sources == null || channel == null)
+			throw new NullPointerException("Argument given was null");
+
+		int blockRows = Math.max(1, Runtime.getRuntime().availableProcessors() * ROWS_PER_THREAD);
+		int[][] block = new int[Math.min(blockRows, sources.length)][targets.length];
+		ByteBuffer buffer = ByteBuffer.allocateDirect(4 * targets.length);
+		IntBuffer ints = buffer.asIntBuffer();
+		Thread caller = Thread.currentThread();
+
+		for(int start = 0; start < sources.length; start += blockRows){
+			int first = start;
+			int count = Math.min(blockRows, sources.length - start);
+			IntStream.range(0, count).parallel().forEach(r -> {
+				AsyncQueries.checkCancelled(caller);
+				fill(table(sources[first + r]), block[r]);
+			});
+
+			for(int r = 0; r < count; r++){
+				ints.clear();
+				ints.put(block[r]);
+				buffer.clear();
+				while(buffer.hasRemaining()){
+					channel.write(buffer);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Builds the ancestor table of a source noun from this matrix's version
+	 */
+	private SAP.AncestorTable table(String source){
+		int id = version.nounId(source, normalizeNouns);
+		if(id == -1)
+			throw new IllegalArgumentException("The noun given was either null or does not exist in the wordnet graph");
+		return version.sap.ancestorTable(version.dictionary.synsets(id));
+	}
+
+	private void fill(SAP.AncestorTable source, int[] distances){
+		for(int t = 0; t < targets.length; t++){
+			distances[t] = source.distance(targets[t]);
+		}
+	}
+}
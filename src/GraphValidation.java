@@ -0,0 +1,252 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+
+/*
+ * Structural check of a hypernym graph, computed once in O(V+E)
+ *
+ * Records the roots (vertices with no hypernyms), whether the graph is acyclic along with one cycle
+ * when it is not, and the vertices that reach no root. Every traversal uses explicit int stacks and
+ * BitSet marks, so deep or adversarial inputs cannot overflow the call stack.
+ */
+public final class GraphValidation {
+	private final int[] roots;			// vertices with no outgoing edges, ascending
+	private final int[] cycle;			// vertices of one directed cycle in edge order, empty if acyclic
+	private final int[] unreachable;	// vertices from which no root can be reached, ascending
+	private final long nanos;			// wall-clock time taken to validate
+
+	/*
+	 * Validates the given graph
+	 */
+	public GraphValidation(CompactDigraph G){
+		if(G == null)
+			throw new NullPointerException("Argument given was null");
+
+		long startTime = System.nanoTime();
+		this.roots = findRoots(G);
+		this.cycle = findCycle(G);
+		this.unreachable = findUnreachable(G, roots);
+		this.nanos = System.nanoTime() - startTime;
+	}
+
+	/*
+	 * Returns the vertices with no hypernyms
+	 */
+	public int[] roots(){
+		return roots.clone();
+	}
+
+	/*
+	 * Returns the single root, or -1 if the graph has none or several
+	 */
+	public int root(){
+		return (roots.length == 1) ? roots[0] : -1;
+	}
+
+	/*
+	 * Checks whether the graph has no directed cycle
+	 */
+	public boolean isAcyclic(){
+		return cycle.length == 0;
+	}
+
+	/*
+	 * Returns the vertices of one directed cycle, each with an edge to the next and the last with an edge
+	 * to the first; empty if the graph is acyclic
+	 */
+	public int[] cycle(){
+		return cycle.clone();
+	}
+
+	/*
+	 * Returns the vertices from which no root can be reached
+	 */
+	public int[] unreachable(){
+		return unreachable.clone();
+	}
+
+	/*
+	 * Checks whether the graph has a single root that every vertex can reach
+	 */
+	public boolean isRooted(){
+		return roots.length == 1 && unreachable.length == 0;
+	}
+
+	/*
+	 * Checks whether the graph is a rooted DAG
+	 */
+	public boolean isRootedDAG(){
+		return isRooted() && isAcyclic();
+	}
+
+	/*
+	 * Returns how long validation took, in nanoseconds
+	 */
+	public long nanos(){
+		return nanos;
+	}
+
+	/*
+	 * Describes why the graph is not a rooted DAG, or returns null if it is one
+	 */
+	public String problem(){
+		if(roots.length == 0)
+			return "no vertex without hypernyms";
+		if(roots.length > 1)
+			return roots.length + " vertices without hypernyms, e.g. " + summary(roots);
+		if(unreachable.length > 0)
+			return unreachable.length + " vertices that cannot reach the root " + roots[0] + ", e.g. " + summary(unreachable);
+		if(cycle.length > 0)
+			return "cycle " + summary(cycle);
+		return null;
+	}
+
+	/*
+	 * Returns a cycle that uses one of the given edges of G, or an empty array if none does
+	 *
+	 * When G was acyclic before the edges were added, any new cycle runs through one of them, and an edge
+	 * u -> w closes one exactly when u is an ancestor of w. Each check only searches w's ancestors, so
+	 * checking a small patch touches the patched region of the graph rather than all of it.
+	 */
+	static int[] cycleThrough(CompactDigraph G, CompactDigraph.EdgeList edges){
+		for(int e = 0; e < edges.count; e++){
+			int u = edges.from[e];
+			int w = edges.to[e];
+			if(u == w)
+				return new int[]{ u };
+
+			// Breadth-first search up from w, remembering how each ancestor was reached
+			HashMap<Integer, Integer> parent = new HashMap<>();
+			ArrayDeque<Integer> queue = new ArrayDeque<>();
+			parent.put(w, w);
+			queue.add(w);
+			while(!queue.isEmpty()){
+				int v = queue.poll();
+				for(int i = G.outgoingStart(v), end = G.outgoingEnd(v); i < end; i++){
+					int x = G.target(i);
+					if(parent.containsKey(x))
+						continue;
+					parent.put(x, v);
+					if(x == u){
+						int length = 1;
+						for(int y = u; y != w; y = parent.get(y)){
+							length++;
+						}
+						int[] cycle = new int[length];
+						for(int y = parent.get(u), k = length - 1; y != w; y = parent.get(y), k--){
+							cycle[k] = y;
+						}
+						cycle[0] = u;
+						cycle[1] = w;
+						return cycle;
+					}
+					queue.add(x);
+				}
+			}
+		}
+		return new int[0];
+	}
+
+	private static int[] findRoots(CompactDigraph G){
+		int V = G.numVertices();
+		int count = 0;
+		int[] roots = new int[Math.min(V, 16)];
+		for(int v = 0; v < V; v++){
+			if(G.outDegree(v) == 0){
+				if(count == roots.length)
+					roots = Arrays.copyOf(roots, count * 2);
+				roots[count++] = v;
+			}
+		}
+		return Arrays.copyOf(roots, count);
+	}
+
+	/*
+	 * Depth-first search over the hypernym edges with an explicit stack of (vertex, next edge) frames
+	 * An edge back to a vertex still on the stack closes a cycle, which is read off the stack
+	 */
+	private static int[] findCycle(CompactDigraph G){
+		int V = G.numVertices();
+		BitSet done = new BitSet(V);		// vertices whose hypernyms have all been explored
+		BitSet onStack = new BitSet(V);		// vertices on the current search path
+		int[] stack = new int[V];
+		int[] nextEdge = new int[V];
+
+		for(int start = 0; start < V; start++){
+			if(done.get(start))
+				continue;
+
+			int top = 0;
+			stack[top] = start;
+			nextEdge[top] = G.outgoingStart(start);
+			onStack.set(start);
+
+			while(top >= 0){
+				int v = stack[top];
+				if(nextEdge[top] == G.outgoingEnd(v)){
+					onStack.clear(v);
+					done.set(v);
+					top--;
+					continue;
+				}
+
+				int w = G.target(nextEdge[top]++);
+				if(onStack.get(w)){
+					int from = top;
+					while(stack[from] != w){
+						from--;
+					}
+					return Arrays.copyOfRange(stack, from, top + 1);
+				}
+				if(!done.get(w)){
+					stack[++top] = w;
+					nextEdge[top] = G.outgoingStart(w);
+					onStack.set(w);
+				}
+			}
+		}
+		return new int[0];
+	}
+
+	/*
+	 * Walks the hyponym edges down from every root and returns the vertices never reached
+	 */
+	private static int[] findUnreachable(CompactDigraph G, int[] roots){
+		int V = G.numVertices();
+		BitSet marked = new BitSet(V);
+		int[] stack = new int[V];
+		int top = 0;
+
+		for(int root : roots){
+			marked.set(root);
+			stack[top++] = root;
+		}
+		while(top > 0){
+			int v = stack[--top];
+			for(int i = G.incomingStart(v), end = G.incomingEnd(v); i < end; i++){
+				int w = G.source(i);
+				if(!marked.get(w)){
+					marked.set(w);
+					stack[top++] = w;
+				}
+			}
+		}
+
+		int[] unreachable = new int[V - marked.cardinality()];
+		int count = 0;
+		for(int v = marked.nextClearBit(0); v < V; v = marked.nextClearBit(v + 1)){
+			unreachable[count++] = v;
+		}
+		return unreachable;
+	}
+
+	/*
+	 * Lists at most the first ten of the given vertices
+	 */
+	private static String summary(int[] vertices){
+		int shown = Math.min(vertices.length, 10);
+		String list = Arrays.toString(Arrays.copyOf(vertices, shown));
+		return (shown < vertices.length) ? list.substring(0, list.length() - 1) + ", ...]" : list;
+	}
+}
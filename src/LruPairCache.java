@@ -0,0 +1,168 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongPredicate;
+
+/*
+ * Bounded PairCache that evicts the least recently used entries
+ *
+ * Entries are spread over a fixed number of stripes, each an access-ordered LinkedHashMap guarded by
+ * its own lock, so concurrent callers only contend when their keys hash to the same stripe. The
+ * bound is split evenly between the stripes.
+ */
+public class LruPairCache implements PairCache {
+	static final int ENTRY_BYTES = 96;			// estimated heap cost of one entry: map node, boxed key and value
+	private static final int STRIPES = 16;		// must be a power of two
+
+	private final Stripe[] stripes;
+	private final long maxEntries;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/*
+	 * Creates a cache holding at most maxEntries entries
+	 */
+	public LruPairCache(long maxEntries){
+		if(maxEntries < 1)
+			throw new IllegalArgumentException("Cache must hold at least one entry");
+
+		this.maxEntries = maxEntries;
+		this.stripes = new Stripe[STRIPES];
+		int perStripe = (int) Math.min(Integer.MAX_VALUE, Math.max(1, maxEntries / STRIPES));
+		for(int i = 0; i < STRIPES; i++){
+			stripes[i] = new Stripe(perStripe);
+		}
+	}
+
+	/*
+	 * Creates a cache whose estimated heap footprint stays under maxBytes
+	 */
+	public static LruPairCache withMaxBytes(long maxBytes){
+		return new LruPairCache(Math.max(1, maxBytes / ENTRY_BYTES));
+	}
+
+	@Override
+	public long get(long key){
+		Stripe stripe = stripeFor(key);
+		Long value;
+		synchronized(stripe){
+			value = stripe.get(key);
+		}
+
+		if(value == null){
+			misses.increment();
+			return NOT_FOUND;
+		}
+		hits.increment();
+		return value;
+	}
+
+	@Override
+	public void put(long key, long value){
+		Stripe stripe = stripeFor(key);
+		synchronized(stripe){
+			stripe.put(key, value);
+		}
+	}
+
+	@Override
+	public void remove(long key){
+		Stripe stripe = stripeFor(key);
+		synchronized(stripe){
+			stripe.remove(key);
+		}
+	}
+
+	/*
+	 * Scans one stripe at a time, so lookups on the other stripes proceed while it runs
+	 */
+	@Override
+	public long removeIf(LongPredicate stale){
+		long removed = 0;
+		for(Stripe stripe : stripes){
+			synchronized(stripe){
+				for(Iterator<Long> keys = stripe.keySet().iterator(); keys.hasNext(); ){
+					if(stale.test(keys.next())){
+						keys.remove();
+						removed++;
+					}
+				}
+			}
+		}
+		return removed;
+	}
+
+	@Override
+	public void clear(){
+		for(Stripe stripe : stripes){
+			synchronized(stripe){
+				stripe.clear();
+			}
+		}
+	}
+
+	@Override
+	public long size(){
+		long size = 0;
+		for(Stripe stripe : stripes){
+			synchronized(stripe){
+				size += stripe.size();
+			}
+		}
+		return size;
+	}
+
+	/*
+	 * Returns the maximum number of entries this cache holds
+	 */
+	public long maxEntries(){
+		return maxEntries;
+	}
+
+	@Override
+	public long hits(){
+		return hits.sum();
+	}
+
+	@Override
+	public long misses(){
+		return misses.sum();
+	}
+
+	@Override
+	public long evictions(){
+		return evictions.sum();
+	}
+
+	/*
+	 * Picks the stripe for a key, mixing the bits so that keys sharing their low id spread out
+	 */
+	private Stripe stripeFor(long key){
+		long h = key * 0x9E3779B97F4A7C15L;
+		return stripes[(int) (h >>> 32) & (STRIPES - 1)];
+	}
+
+	/*
+	 * One lock's worth of entries, kept in access order so the eldest entry is the least recently used
+	 */
+	private final class Stripe extends LinkedHashMap<Long, Long> {
+		private static final long serialVersionUID = 1L;
+		private final int capacity;
+
+		Stripe(int capacity){
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest){
+			if(size() > capacity){
+				evictions.increment();
+				return true;
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Depth-based semantic similarity measures between two nouns
+ *
+ * Each measure is computed from one shortest ancestral path: its length, and the depth of its common
+ * ancestor (the lowest common subsumer) taken as the longest hypernym path up to the root. Depths are
+ * counted in vertices, so the root has depth 1, as in the usual definitions of these measures.
+ */
+public enum Measure {
+	/*
+	 * 1 / (1 + path length); 1 for a noun and itself
+	 */
+	PATH{
+		@Override
+		double score(int distance, int ancestorDepth, int taxonomyDepth){
+			return 1.0 / (1 + distance);
+		}
+	},
+	
+	/*
+	 * Wu-Palmer: 2 * depth(ancestor) / (depth(a) + depth(b)), measuring depth(a) and depth(b) along the path
+	 * through the ancestor; in (0, 1], 1 for a noun and itself
+	 */
+	WU_PALMER{
+		@Override
+		double score(int distance, int ancestorDepth, int taxonomyDepth){
+			return (2.0 * ancestorDepth) / (distance + 2.0 * ancestorDepth);
+		}
+	},
+	
+	/*
+	 * Leacock-Chodorow: -log((path length + 1) / (2 * depth of the taxonomy))
+	 */
+	LEACOCK_CHODOROW{
+		@Override
+		double score(int distance, int ancestorDepth, int taxonomyDepth){
+			return -Math.log((distance + 1.0) / (2.0 * taxonomyDepth));
+		}
+	};
+	
+	/*
+	 * Scores a path of the given length whose ancestor has the given depth, in a taxonomy of the given depth
+	 */
+	abstract double score(int distance, int ancestorDepth, int taxonomyDepth);
+}
@@ -0,0 +1,526 @@
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/*
+ * Immutable noun dictionary over a packed UTF-8 arena
+ *
+ * Nouns are numbered in order of first appearance in the synsets file. The arena holds their UTF-8
+ * bytes in id order, and a sorted permutation of the ids lets a word be found by binary search that
+ * compares its characters to the arena bytes directly, so lookups build no String. Postings map each
+ * noun to the synsets it belongs to, and a reverse table lists each synset's nouns in file order.
+ *
+ * Every table is a ByteBuffer or IntBuffer read with absolute gets only, so the dictionary can live
+ * on the heap, in direct memory, or in a memory-mapped snapshot, and be shared between threads.
+ */
+final class NounDictionary {
+	private final StringArena nouns;			// UTF-8 bytes of every noun, by noun id
+	private final IntBuffer sorted;				// noun ids in ascending byte order
+	private final IntBuffer postingOffsets;		// start of each noun's synsets in postings, nouns+1 entries
+	private final IntBuffer postings;			// synset ids, grouped by noun
+	private final IntBuffer synsetOffsets;		// start of each synset's nouns in synsetNouns, synsets+1 entries
+	private final IntBuffer synsetNouns;		// noun ids, grouped by synset
+
+	NounDictionary(StringArena nouns, IntBuffer sorted, IntBuffer postingOffsets, IntBuffer postings, IntBuffer synsetOffsets, IntBuffer synsetNouns){
+		this.nouns = nouns;
+		this.sorted = sorted;
+		this.postingOffsets = postingOffsets;
+		this.postings = postings;
+		this.synsetOffsets = synsetOffsets;
+		this.synsetNouns = synsetNouns;
+	}
+
+	/*
+	 * Builds a dictionary from the noun occurrences read by a loader
+	 * Nouns are deduplicated on their raw bytes, so no String is created for them
+	 */
+	static NounDictionary build(WordNetLoader loader, boolean offHeap){
+		ByteBuffer data = loader.synsetData();
+		int tokens = loader.tokenCount();
+		int synsetCount = loader.synsetCount();
+
+		// Assign noun ids in order of first appearance with an open-addressing table over the byte ranges
+		int[] tokenNoun = new int[tokens];
+		int[] firstToken = new int[Math.max(16, tokens / 2)];
+		int[] table = new int[Integer.highestOneBit(Math.max(16, tokens) * 2) * 2];
+		Arrays.fill(table, -1);
+		int mask = table.length - 1;
+		int nounCount = 0;
+
+		for(int t = 0; t < tokens; t++){
+			int start = loader.tokenStart(t);
+			int end = loader.tokenEnd(t);
+			int slot = hash(data, start, end) & mask;
+			while(true){
+				int id = table[slot];
+				if(id == -1){
+					if(nounCount == firstToken.length)
+						firstToken = Arrays.copyOf(firstToken, nounCount * 2);
+					firstToken[nounCount] = t;
+					table[slot] = nounCount;
+					tokenNoun[t] = nounCount++;
+					break;
+				}
+				int other = firstToken[id];
+				if(equalRanges(data, start, end, loader.tokenStart(other), loader.tokenEnd(other))){
+					tokenNoun[t] = id;
+					break;
+				}
+				slot = (slot + 1) & mask;
+			}
+		}
+
+		StringArena.Builder arena = new StringArena.Builder();
+		for(int id = 0; id < nounCount; id++){
+			arena.add(data, loader.tokenStart(firstToken[id]), loader.tokenEnd(firstToken[id]));
+		}
+		StringArena nouns = arena.build();
+
+		// Postings: counting sort of the occurrences by noun, keeping synsets in ascending order
+		int[] postingOffsets = new int[nounCount + 1];
+		for(int t = 0; t < tokens; t++){
+			postingOffsets[tokenNoun[t] + 1]++;
+		}
+		for(int id = 1; id <= nounCount; id++){
+			postingOffsets[id] += postingOffsets[id - 1];
+		}
+		int[] next = Arrays.copyOf(postingOffsets, nounCount);
+		int[] postings = new int[tokens];
+		for(int t = 0; t < tokens; t++){
+			postings[next[tokenNoun[t]]++] = loader.tokenSynset(t);
+		}
+
+		// Reverse table: occurrences are already grouped by synset, in file order
+		int[] synsetOffsets = new int[synsetCount + 1];
+		for(int t = 0; t < tokens; t++){
+			synsetOffsets[loader.tokenSynset(t) + 1]++;
+		}
+		for(int s = 1; s <= synsetCount; s++){
+			synsetOffsets[s] += synsetOffsets[s - 1];
+		}
+
+		int[] sorted = sortedOrder(nouns);
+		NounDictionary dictionary = new NounDictionary(nouns, IntBuffer.wrap(sorted), IntBuffer.wrap(postingOffsets),
+				IntBuffer.wrap(postings), IntBuffer.wrap(synsetOffsets), IntBuffer.wrap(tokenNoun));
+		return offHeap ? dictionary.toDirect() : dictionary;
+	}
+
+	/*
+	 * Returns a copy of this dictionary with the synsets of the given patch appended after the existing ones
+	 *
+	 * Existing nouns and synsets keep their ids, and new nouns are numbered after the existing ones, so ids
+	 * held by callers stay valid. The new nouns alone are sorted and then merged into the sorted order.
+	 */
+	NounDictionary withSynsets(TaxonomyPatch patch){
+		int oldNouns = size();
+		int oldSynsets = synsetCount();
+		HashMap<String, Integer> addedNouns = new HashMap<>();
+		ArrayList<String> addedWords = new ArrayList<>();
+		int[] tokenNoun = new int[16];
+		int[] addedOffsets = new int[patch.synsetCount() + 1];
+		int tokens = 0;
+
+		for(int i = 0; i < patch.synsetCount(); i++){
+			for(String word : patch.synsetNouns(i).split(" ")){
+				if(word.isEmpty())
+					continue;
+				int id = find(word);
+				if(id == -1){
+					Integer added = addedNouns.get(word);
+					if(added == null){
+						added = oldNouns + addedWords.size();
+						addedNouns.put(word, added);
+						addedWords.add(word);
+					}
+					id = added;
+				}
+				if(tokens == tokenNoun.length)
+					tokenNoun = Arrays.copyOf(tokenNoun, tokens * 2);
+				tokenNoun[tokens++] = id;
+			}
+			addedOffsets[i + 1] = tokens;
+		}
+		int nounCount = oldNouns + addedWords.size();
+		int synsetCount = oldSynsets + patch.synsetCount();
+
+		StringArena.Builder arena = new StringArena.Builder();
+		for(int id = 0; id < oldNouns; id++){
+			arena.add(nouns.bytes(), nouns.start(id), nouns.end(id));
+		}
+		for(String word : addedWords){
+			arena.add(word);
+		}
+		StringArena grown = arena.build();
+
+		// Postings: each noun's existing synsets, then the new ones, which all have higher ids
+		int[] postingOffsets = new int[nounCount + 1];
+		for(int id = 0; id < nounCount; id++){
+			postingOffsets[id + 1] = (id < oldNouns) ? postingEnd(id) - postingStart(id) : 0;
+		}
+		for(int t = 0; t < tokens; t++){
+			postingOffsets[tokenNoun[t] + 1]++;
+		}
+		for(int id = 1; id <= nounCount; id++){
+			postingOffsets[id] += postingOffsets[id - 1];
+		}
+		int[] postings = new int[postingOffsets[nounCount]];
+		int[] next = Arrays.copyOf(postingOffsets, nounCount);
+		for(int id = 0; id < oldNouns; id++){
+			for(int i = postingStart(id), end = postingEnd(id); i < end; i++){
+				postings[next[id]++] = postingAt(i);
+			}
+		}
+		for(int i = 0; i < patch.synsetCount(); i++){
+			for(int t = addedOffsets[i]; t < addedOffsets[i + 1]; t++){
+				postings[next[tokenNoun[t]]++] = oldSynsets + i;
+			}
+		}
+
+		// Reverse table: the existing synsets followed by the new ones
+		int[] synsetOffsets = new int[synsetCount + 1];
+		int[] synsetNouns = new int[this.synsetNouns.limit() + tokens];
+		for(int s = 0; s <= oldSynsets; s++){
+			synsetOffsets[s] = this.synsetOffsets.get(s);
+		}
+		for(int i = 1; i <= patch.synsetCount(); i++){
+			synsetOffsets[oldSynsets + i] = synsetOffsets[oldSynsets] + addedOffsets[i];
+		}
+		this.synsetNouns.duplicate().get(synsetNouns, 0, this.synsetNouns.limit());
+		System.arraycopy(tokenNoun, 0, synsetNouns, this.synsetNouns.limit(), tokens);
+
+		// Sorted order: sort the new nouns alone, then merge them into the existing order
+		NounDictionary unsorted = new NounDictionary(grown, null, null, null, null, null);
+		Integer[] addedIds = new Integer[addedWords.size()];
+		for(int i = 0; i < addedIds.length; i++){
+			addedIds[i] = oldNouns + i;
+		}
+		Arrays.sort(addedIds, unsorted::compare);
+		int[] sorted = new int[nounCount];
+		for(int i = 0, j = 0, k = 0; k < nounCount; k++){
+			if(j == addedIds.length || (i < oldNouns && unsorted.compare(this.sorted.get(i), addedIds[j]) < 0))
+				sorted[k] = this.sorted.get(i++);
+			else
+				sorted[k] = addedIds[j++];
+		}
+
+		NounDictionary dictionary = new NounDictionary(grown, IntBuffer.wrap(sorted), IntBuffer.wrap(postingOffsets),
+				IntBuffer.wrap(postings), IntBuffer.wrap(synsetOffsets), IntBuffer.wrap(synsetNouns));
+		return nouns.bytes().isDirect() ? dictionary.toDirect() : dictionary;
+	}
+
+	/*
+	 * Returns the number of distinct nouns
+	 */
+	int size(){
+		return nouns.size();
+	}
+
+	/*
+	 * Returns the number of synsets covered
+	 */
+	int synsetCount(){
+		return synsetOffsets.limit() - 1;
+	}
+
+	/*
+	 * Returns the id of the given noun, or -1 if it is not in the dictionary
+	 */
+	int find(String word){
+		int position = position(word);
+		return (position == -1) ? -1 : sorted.get(position);
+	}
+
+	/*
+	 * Returns the position of the given noun in ascending byte order, or -1 if it is not in the dictionary
+	 */
+	int position(String word){
+		int low = 0;
+		int high = sorted.limit() - 1;
+		while(low <= high){
+			int mid = (low + high) >>> 1;
+			int cmp = compare(sorted.get(mid), word);
+			if(cmp < 0)
+				low = mid + 1;
+			else if(cmp > 0)
+				high = mid - 1;
+			else
+				return mid;
+		}
+		return -1;
+	}
+
+	/*
+	 * Returns the id of the noun at the given position in ascending byte order
+	 */
+	int sortedAt(int position){
+		return sorted.get(position);
+	}
+
+	/*
+	 * Returns the first position in ascending byte order whose noun starts with the prefix, or would if there were one
+	 * Nouns sharing a prefix are contiguous in that order, running up to prefixEnd(prefix)
+	 */
+	int prefixStart(String prefix){
+		return prefixBound(prefix, false);
+	}
+
+	/*
+	 * Returns the position one past the last noun that starts with the prefix
+	 */
+	int prefixEnd(String prefix){
+		return prefixBound(prefix, true);
+	}
+
+	/*
+	 * Returns the first position whose noun sorts after the prefix range if after is set, else the first within or after it
+	 */
+	private int prefixBound(String prefix, boolean after){
+		int low = 0;
+		int high = sorted.limit();
+		while(low < high){
+			int mid = (low + high) >>> 1;
+			int cmp = compare(sorted.get(mid), prefix, true);
+			if(cmp < 0 || (after && cmp == 0))
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	/*
+	 * Returns the noun with the given id, decoded
+	 */
+	String noun(int id){
+		return nouns.get(id);
+	}
+
+	/*
+	 * Returns the index of the first synset of the given noun; the list runs up to postingEnd(id), exclusive
+	 */
+	int postingStart(int id){
+		return postingOffsets.get(id);
+	}
+
+	/*
+	 * Returns the index one past the last synset of the given noun
+	 */
+	int postingEnd(int id){
+		return postingOffsets.get(id + 1);
+	}
+
+	/*
+	 * Returns the synset id stored at the given postings index
+	 */
+	int postingAt(int i){
+		return postings.get(i);
+	}
+
+	/*
+	 * Returns the synsets the given noun belongs to
+	 */
+	int[] synsets(int id){
+		int start = postingOffsets.get(id);
+		int[] ids = new int[postingOffsets.get(id + 1) - start];
+		for(int i = 0; i < ids.length; i++){
+			ids[i] = postings.get(start + i);
+		}
+		return ids;
+	}
+
+	/*
+	 * Returns the index of the first noun of the given synset; the list runs up to synsetEnd(s), exclusive
+	 */
+	int synsetStart(int s){
+		return synsetOffsets.get(s);
+	}
+
+	/*
+	 * Returns the index one past the last noun of the given synset
+	 */
+	int synsetEnd(int s){
+		return synsetOffsets.get(s + 1);
+	}
+
+	/*
+	 * Returns the noun id stored at the given synset index
+	 */
+	int synsetNounAt(int i){
+		return synsetNouns.get(i);
+	}
+
+	/*
+	 * Returns the nouns of the given synset joined by spaces, as in the second field of synsets.txt
+	 */
+	String synset(int s){
+		StringBuilder joined = new StringBuilder();
+		for(int i = synsetOffsets.get(s), end = synsetOffsets.get(s + 1); i < end; i++){
+			if(joined.length() > 0)
+				joined.append(' ');
+			joined.append(nouns.get(synsetNouns.get(i)));
+		}
+		return joined.toString();
+	}
+
+	/*
+	 * Returns the number of bytes held by the dictionary's tables
+	 */
+	long memoryBytes(){
+		return nouns.byteSize() + 4L * (nouns.size() + 1)
+				+ 4L * (sorted.limit() + postingOffsets.limit() + postings.limit() + synsetOffsets.limit() + synsetNouns.limit());
+	}
+
+	/* --- Raw tables, for writing snapshots --- */
+
+	StringArena nouns(){
+		return nouns;
+	}
+
+	IntBuffer sorted(){
+		return sorted;
+	}
+
+	IntBuffer postingOffsets(){
+		return postingOffsets;
+	}
+
+	IntBuffer postings(){
+		return postings;
+	}
+
+	IntBuffer synsetOffsets(){
+		return synsetOffsets;
+	}
+
+	IntBuffer synsetNouns(){
+		return synsetNouns;
+	}
+
+	/*
+	 * Compares the UTF-8 bytes of noun id with the UTF-8 encoding of word, encoding the word on the fly
+	 */
+	int compare(int id, String word){
+		return compare(id, word, false);
+	}
+
+	/*
+	 * Compares noun id with word as compare(id, word) does, except that with prefix set a noun that
+	 * starts with word compares equal to it
+	 */
+	private int compare(int id, String word, boolean prefix){
+		int pos = nouns.start(id);
+		int end = nouns.end(id);
+		for(int i = 0, n = word.length(); i < n; ){
+			int cp = word.codePointAt(i);
+			i += Character.charCount(cp);
+
+			int length = utf8Length(cp);
+			for(int k = 0; k < length; k++){
+				if(pos == end)
+					return -1;
+				int cmp = (nouns.byteAt(pos++) & 0xff) - utf8Byte(cp, length, k);
+				if(cmp != 0)
+					return cmp;
+			}
+		}
+		return (pos == end || prefix) ? 0 : 1;
+	}
+
+	/*
+	 * Compares the UTF-8 bytes of two nouns as unsigned values
+	 */
+	int compare(int a, int b){
+		int i = nouns.start(a), iEnd = nouns.end(a);
+		int j = nouns.start(b), jEnd = nouns.end(b);
+		while(i < iEnd && j < jEnd){
+			int cmp = (nouns.byteAt(i++) & 0xff) - (nouns.byteAt(j++) & 0xff);
+			if(cmp != 0)
+				return cmp;
+		}
+		return (iEnd - i) - (jEnd - j);
+	}
+
+	/*
+	 * Copies every table into direct, off-heap buffers
+	 */
+	private NounDictionary toDirect(){
+		StringArena directNouns = new StringArena(directCopy(nouns.bytes()), directCopy(nouns.offsets()));
+		return new NounDictionary(directNouns, directCopy(sorted), directCopy(postingOffsets), directCopy(postings),
+				directCopy(synsetOffsets), directCopy(synsetNouns));
+	}
+
+	private static ByteBuffer directCopy(ByteBuffer source){
+		ByteBuffer copy = ByteBuffer.allocateDirect(source.limit());
+		copy.put(source.duplicate());
+		copy.flip();
+		return copy;
+	}
+
+	private static IntBuffer directCopy(IntBuffer source){
+		IntBuffer copy = ByteBuffer.allocateDirect(4 * source.limit()).asIntBuffer();
+		copy.put(source.duplicate());
+		copy.flip();
+		return copy;
+	}
+
+	/*
+	 * Returns the noun ids ordered by their UTF-8 bytes
+	 */
+	private static int[] sortedOrder(StringArena nouns){
+		NounDictionary unsorted = new NounDictionary(nouns, null, null, null, null, null);
+		Integer[] ids = new Integer[nouns.size()];
+		for(int id = 0; id < ids.length; id++){
+			ids[id] = id;
+		}
+		Arrays.parallelSort(ids, unsorted::compare);
+
+		int[] sorted = new int[ids.length];
+		for(int i = 0; i < ids.length; i++){
+			sorted[i] = ids[i];
+		}
+		return sorted;
+	}
+
+	private static int hash(ByteBuffer data, int start, int end){
+		int h = 0x811C9DC5;
+		for(int i = start; i < end; i++){
+			h = (h ^ data.get(i)) * 0x01000193;
+		}
+		return h ^ (h >>> 16);
+	}
+
+	private static boolean equalRanges(ByteBuffer data, int aStart, int aEnd, int bStart, int bEnd){
+		if(aEnd - aStart != bEnd - bStart)
+			return false;
+		for(int i = 0; i < aEnd - aStart; i++){
+			if(data.get(aStart + i) != data.get(bStart + i))
+				return false;
+		}
+		return true;
+	}
+
+	private static int utf8Length(int cp){
+		if(cp < 0x80)
+			return 1;
+		if(cp < 0x800)
+			return 2;
+		if(cp < 0x10000)
+			return 3;
+		return 4;
+	}
+
+	/*
+	 * Returns byte k of the UTF-8 encoding of cp, which is length bytes long
+	 */
+	private static int utf8Byte(int cp, int length, int k){
+		if(length == 1)
+			return cp;
+		if(k == 0){
+			int lead = (length == 2) ? 0xC0 : (length == 3) ? 0xE0 : 0xF0;
+			return lead | (cp >>> (6 * (length - 1)));
+		}
+		return 0x80 | ((cp >>> (6 * (length - 1 - k))) & 0x3F);
+	}
+}
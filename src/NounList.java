@@ -0,0 +1,113 @@
+import java.util.AbstractList;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/*
+ * Immutable list view of a range of a noun dictionary's nouns, in ascending UTF-8 byte order
+ *
+ * The view holds no strings of its own: get() decodes a noun from the dictionary's arena when it is
+ * asked for, contains() and indexOf() binary search the dictionary, and subList() returns another view.
+ * Its spliterator splits the position range in halves, so parallel streams divide the work evenly.
+ */
+final class NounList extends AbstractList<String> implements RandomAccess {
+	private final NounDictionary dictionary;
+	private final int from;		// first position in the dictionary's sorted order
+	private final int to;		// one past the last position
+
+	NounList(NounDictionary dictionary, int from, int to){
+		this.dictionary = dictionary;
+		this.from = from;
+		this.to = to;
+	}
+
+	@Override
+	public String get(int index){
+		if(index < 0 || index >= to - from)
+			throw new IndexOutOfBoundsException("Index " + index + " is not between 0 and " + (to - from - 1));
+		return dictionary.noun(dictionary.sortedAt(from + index));
+	}
+
+	@Override
+	public int size(){
+		return to - from;
+	}
+
+	@Override
+	public int indexOf(Object o){
+		if(!(o instanceof String))
+			return -1;
+		int position = dictionary.position((String) o);
+		return (position >= from && position < to) ? position - from : -1;
+	}
+
+	@Override
+	public int lastIndexOf(Object o){
+		return indexOf(o);
+	}
+
+	@Override
+	public boolean contains(Object o){
+		return indexOf(o) != -1;
+	}
+
+	@Override
+	public NounList subList(int fromIndex, int toIndex){
+		if(fromIndex < 0 || toIndex > to - from || fromIndex > toIndex)
+			throw new IndexOutOfBoundsException("Range " + fromIndex + " to " + toIndex + " is not within 0 to " + (to - from));
+		return new NounList(dictionary, from + fromIndex, from + toIndex);
+	}
+
+	@Override
+	public Spliterator<String> spliterator(){
+		return new NounSpliterator(from, to);
+	}
+
+	/*
+	 * Spliterator over a range of sorted positions
+	 */
+	private final class NounSpliterator implements Spliterator<String> {
+		private int next;			// next position to hand out
+		private final int end;		// one past the last position
+
+		NounSpliterator(int next, int end){
+			this.next = next;
+			this.end = end;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super String> action){
+			if(next >= end)
+				return false;
+			action.accept(dictionary.noun(dictionary.sortedAt(next++)));
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super String> action){
+			for(; next < end; next++){
+				action.accept(dictionary.noun(dictionary.sortedAt(next)));
+			}
+		}
+
+		@Override
+		public Spliterator<String> trySplit(){
+			int mid = (next + end) >>> 1;
+			if(mid <= next)
+				return null;
+			NounSpliterator prefix = new NounSpliterator(next, mid);
+			next = mid;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize(){
+			return end - next;
+		}
+
+		@Override
+		public int characteristics(){
+			return ORDERED | SIZED | SUBSIZED | DISTINCT | NONNULL | IMMUTABLE;
+		}
+	}
+}
@@ -0,0 +1,275 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/*
+ * Forgiving noun lookup: normalized matching, prefix completion and edit-distance suggestions
+ *
+ * Every noun is normalized (lower case, runs of spaces and underscores folded to one underscore) and the
+ * normalized keys are packed into one char array in sorted order, with the id of the noun each came from.
+ * Keys that share a prefix are contiguous, so the array doubles as an implicit trie: a prefix is a range
+ * found by binary search, and the edit-distance search walks the keys in order, reusing the dynamic
+ * programming rows of the prefix each key shares with the one before, and jumps past a whole prefix range
+ * once no key in it can come within the allowed distance.
+ */
+public final class NounLookup {
+	private final NounDictionary dictionary;
+	private final char[] chars;			// normalized keys, back to back in sorted order
+	private final int[] offsets;		// start of each key in chars, keys+1 entries
+	private final int[] ids;			// noun id each key was normalized from
+
+	/*
+	 * Normalizes every noun of the dictionary
+	 */
+	NounLookup(NounDictionary dictionary){
+		this.dictionary = dictionary;
+
+		int n = dictionary.size();
+		String[] keys = new String[n];
+		Integer[] order = new Integer[n];
+		long length = 0;
+		for(int id = 0; id < n; id++){
+			keys[id] = normalize(dictionary.noun(id));
+			order[id] = id;
+			length += keys[id].length();
+		}
+		Arrays.sort(order, (a, b) -> keys[a].compareTo(keys[b]));
+
+		this.chars = new char[(int) length];
+		this.offsets = new int[n + 1];
+		this.ids = new int[n];
+		for(int k = 0; k < n; k++){
+			String key = keys[order[k]];
+			key.getChars(0, key.length(), chars, offsets[k]);
+			offsets[k + 1] = offsets[k] + key.length();
+			ids[k] = order[k];
+		}
+	}
+
+	/*
+	 * Returns the word in lower case with surrounding blanks removed and runs of spaces and underscores folded into one underscore
+	 */
+	public static String normalize(String word){
+		String lower = word.trim().toLowerCase(Locale.ROOT);
+		StringBuilder normalized = new StringBuilder(lower.length());
+		for(int i = 0; i < lower.length(); i++){
+			char c = lower.charAt(i);
+			if(c == ' ' || c == '_'){
+				if(normalized.length() > 0 && normalized.charAt(normalized.length() - 1) == '_')
+					continue;
+				c = '_';
+			}
+			normalized.append(c);
+		}
+		return normalized.toString();
+	}
+
+	/*
+	 * Returns the nouns whose normalized form equals the word's, in normalized order
+	 */
+	public List<String> matches(String word){
+		String key = normalize(word);
+		int start = lowerBound(key, 0, ids.length, false);
+		int end = lowerBound(key, start, ids.length, true);
+		List<String> found = new ArrayList<>(end - start);
+		for(int k = start; k < end && keyLength(k) == key.length(); k++){
+			found.add(dictionary.noun(ids[k]));
+		}
+		return found;
+	}
+
+	/*
+	 * Returns the noun itself if it is one, else the first noun with the same normalized form, else null
+	 */
+	public String resolve(String word){
+		if(dictionary.find(word) != -1)
+			return word;
+		int id = resolveId(word);
+		return (id == -1) ? null : dictionary.noun(id);
+	}
+
+	/*
+	 * Returns the id of the noun resolve() would return, or -1
+	 */
+	int resolveId(String word){
+		int id = dictionary.find(word);
+		if(id != -1)
+			return id;
+
+		String key = normalize(word);
+		int k = lowerBound(key, 0, ids.length, false);
+		return (k < ids.length && keyLength(k) == key.length() && comparePrefix(k, key) == 0) ? ids[k] : -1;
+	}
+
+	/*
+	 * Returns up to limit nouns whose normalized form starts with the normalized prefix, in normalized order
+	 */
+	public List<String> complete(String prefix, int limit){
+		if(limit < 0)
+			throw new IllegalArgumentException("limit must not be negative");
+
+		String key = normalize(prefix);
+		int start = lowerBound(key, 0, ids.length, false);
+		int end = Math.min(lowerBound(key, start, ids.length, true), start + limit);
+		List<String> found = new ArrayList<>(end - start);
+		for(int k = start; k < end; k++){
+			found.add(dictionary.noun(ids[k]));
+		}
+		return found;
+	}
+
+	/*
+	 * Returns up to limit nouns whose normalized form is within maxEdits insertions, deletions or substitutions
+	 * of the normalized word, closest first and in normalized order among equals
+	 */
+	public List<String> suggest(String word, int maxEdits, int limit){
+		if(maxEdits < 0 || limit < 0)
+			throw new IllegalArgumentException("maxEdits and limit must not be negative");
+
+		char[] query = normalize(word).toCharArray();
+		int m = query.length;
+		int[][] rows = new int[m + maxEdits + 2][m + 1];		// rows[d] scores the first d characters of the current path
+		for(int j = 0; j <= m; j++){
+			rows[0][j] = j;
+		}
+		char[] path = new char[rows.length];		// characters whose rows are computed
+		int depth = 0;								// number of valid rows beyond rows[0]
+		List<long[]> found = new ArrayList<>();		// (distance, key) pairs
+
+		int k = 0;
+		while(k < ids.length){
+			int start = offsets[k];
+			int length = keyLength(k);
+			if(length > m + maxEdits){
+				// Too long to match, but its prefix may still lead to shorter keys: only score up to the bound
+				length = m + maxEdits + 1;
+			}
+
+			// Rows of the prefix shared with the previous path stay valid
+			int shared = 0;
+			while(shared < depth && shared < length && path[shared] == chars[start + shared]){
+				shared++;
+			}
+			depth = shared;
+
+			boolean pruned = false;
+			while(depth < length){
+				char c = chars[start + depth];
+				int[] previous = rows[depth];
+				int[] row = rows[depth + 1];
+				row[0] = depth + 1;
+				int best = row[0];
+				for(int j = 1; j <= m; j++){
+					int cost = (query[j - 1] == c) ? 0 : 1;
+					row[j] = Math.min(Math.min(row[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+					best = Math.min(best, row[j]);
+				}
+				path[depth++] = c;
+
+				// No key continuing this prefix can come back within the bound, so skip them all
+				if(best > maxEdits){
+					k = prefixEnd(path, depth, k);
+					pruned = true;
+					break;
+				}
+			}
+			if(pruned)
+				continue;
+
+			if(keyLength(k) == length && rows[length][m] <= maxEdits)
+				found.add(new long[]{ rows[length][m], k });
+			k++;
+		}
+
+		found.sort((a, b) -> (a[0] != b[0]) ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+		List<String> suggestions = new ArrayList<>(Math.min(limit, found.size()));
+		for(int i = 0; i < found.size() && i < limit; i++){
+			suggestions.add(dictionary.noun(ids[(int) found.get(i)[1]]));
+		}
+		return suggestions;
+	}
+
+	/*
+	 * Returns the number of keys, one per noun
+	 */
+	public int size(){
+		return ids.length;
+	}
+
+	/*
+	 * Returns the heap footprint of the packed arrays, in bytes
+	 */
+	public long memoryBytes(){
+		return 2L * chars.length + 4L * (offsets.length + ids.length);
+	}
+
+	private int keyLength(int k){
+		return offsets[k + 1] - offsets[k];
+	}
+
+	/*
+	 * Compares key k with the word, treating a key that starts with the word as equal to it
+	 */
+	private int comparePrefix(int k, String word){
+		int start = offsets[k];
+		int length = keyLength(k);
+		for(int i = 0; i < word.length(); i++){
+			if(i == length)
+				return -1;
+			int cmp = chars[start + i] - word.charAt(i);
+			if(cmp != 0)
+				return cmp;
+		}
+		return 0;
+	}
+
+	/*
+	 * Returns the first key in [from, to) that starts with the word or sorts after it; with after set, the first that sorts after every key starting with it
+	 */
+	private int lowerBound(String word, int from, int to, boolean after){
+		int low = from;
+		int high = to;
+		while(low < high){
+			int mid = (low + high) >>> 1;
+			int cmp = comparePrefix(mid, word);
+			if(cmp < 0 || (after && cmp == 0))
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	/*
+	 * Returns the first key after k that does not start with the first length characters of path; key k must start with them
+	 * Most pruned ranges are short, so the end is bracketed by galloping forward from k before the binary search,
+	 * which keeps the probes close to k in memory
+	 */
+	private int prefixEnd(char[] path, int length, int k){
+		int low = k + 1;
+		int high = low;
+		for(int step = 1; high < ids.length && startsWith(high, path, length); step <<= 1){
+			low = high + 1;
+			high = Math.min(ids.length, k + 1 + step);
+		}
+		while(low < high){
+			int mid = (low + high) >>> 1;
+			if(startsWith(mid, path, length))
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	private boolean startsWith(int k, char[] path, int length){
+		if(keyLength(k) < length)
+			return false;
+		for(int i = 0, start = offsets[k]; i < length; i++){
+			if(chars[start + i] != path[i])
+				return false;
+		}
+		return true;
+	}
+}
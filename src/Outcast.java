@@ -1,10 +1,19 @@
 import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.util.Arrays;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
+/*
+ * Finds the noun least related to the others in a set
+ * Outcast keeps no per-query state, so one instance can be shared by any number of threads
+ */
 public class Outcast {
-	private WordNet wordNet;
+	private final WordNet wordNet;
 	
 	public Outcast(WordNet W){
 		this.wordNet = W;
@@ -14,30 +23,88 @@ public class Outcast {
 	 *  Given an array of WordNet nouns, return an outcast
 	 */
 	public String outcast(String[] nouns){
+		int[] sums = distanceSums(nouns);
 		String outcastNoun = null;
 		int outcastDist = 0;
 		
 		for(int i = 0, len = nouns.length; i < len ; i++){
-			String nounA = nouns[i];
-			int currentDist = 0;
-			
-			for(int j = 0; j < len; j++){
-				if(i == j)
-					continue;
-				
-				String nounB = nouns[j];
-				
-				currentDist += wordNet.distance(nounA, nounB);
-			}
-			
-			if(currentDist > outcastDist){
-				outcastDist = currentDist;
-				outcastNoun = nounA;
+			if(sums[i] > outcastDist){
+				outcastDist = sums[i];
+				outcastNoun = nouns[i];
 			}
 		}	
 		return outcastNoun;
 	}
 	
+	/*
+	 * Given an array of WordNet nouns, return an outcast, computed on the WordNet's executor
+	 * Cancelling the returned future abandons the computation at its next row of distances
+	 */
+	public CompletableFuture<String> outcastAsync(String[] nouns){
+		return outcastAsync(nouns, wordNet.executor(), 0, TimeUnit.MILLISECONDS);
+	}
+	
+	/*
+	 * Given an array of WordNet nouns, return an outcast, computed on the given executor
+	 * The future fails with a TimeoutException and the computation is abandoned if it takes longer than the timeout;
+	 * a timeout that is not positive never expires
+	 */
+	public CompletableFuture<String> outcastAsync(String[] nouns, Executor executor, long timeout, TimeUnit unit){
+		return AsyncQueries.submit(() -> outcast(nouns), executor, timeout, unit);
+	}
+	
+	/*
+	 * Given an array of WordNet nouns, return the k nouns with the largest distance sums, largest first
+	 * Ties keep the order of the input array
+	 */
+	public String[] outcasts(String[] nouns, int k){
+		if(k < 0)
+			throw new IllegalArgumentException("k must not be negative");
+		
+		int[] sums = distanceSums(nouns);
+		Integer[] order = new Integer[nouns.length];
+		for(int i = 0; i < order.length; i++){
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Integer.compare(sums[b], sums[a]));
+		
+		String[] top = new String[Math.min(k, nouns.length)];
+		for(int i = 0; i < top.length; i++){
+			top[i] = nouns[order[i]];
+		}
+		return top;
+	}
+	
+	/*
+	 * Given an array of WordNet nouns, return the sum of each noun's distances to all the others
+	 *
+	 * Each noun's ancestor table is built once. Distance is symmetric, so only the upper triangle of
+	 * pairs is computed, each by merge-joining two tables; rows are spread over the fork-join pool and
+	 * every worker accumulates into its own sums array, merged at the end. Workers check before each row
+	 * whether the calling thread has been interrupted, and give up with a CancellationException if so.
+	 */
+	public int[] distanceSums(String[] nouns){
+		if(nouns == null)
+			throw new NullPointerException();
+		
+		int n = nouns.length;
+		SAP.AncestorTable[] tables = wordNet.ancestorTables(nouns);
+		Thread caller = Thread.currentThread();
+		
+		return IntStream.range(0, n).parallel().collect(() -> new int[n], (sums, i) -> {
+			AsyncQueries.checkCancelled(caller);
+			for(int j = i + 1; j < n; j++){
+				int dist = tables[i].distance(tables[j]);
+				sums[i] += dist;
+				sums[j] += dist;
+			}
+		}, (sums, other) -> {
+			for(int i = 0; i < n; i++){
+				sums[i] += other[i];
+			}
+		});
+	}
+	
 	/*
 	 * Unit testing
 	 */
@@ -0,0 +1,69 @@
+import java.util.function.LongPredicate;
+
+/*
+ * Cache of query results keyed by an unordered pair of ids
+ *
+ * Keys are built with key(a, b), which packs the smaller id into the high 32 bits and the larger
+ * into the low 32 bits, so (a, b) and (b, a) share one entry. Implementations must be safe for
+ * concurrent callers and are expected to bound their own size.
+ */
+public interface PairCache {
+	long NOT_FOUND = Long.MIN_VALUE;		// returned by get() on a miss; never a valid value
+
+	/*
+	 * Returns the value cached for the key, or NOT_FOUND
+	 */
+	long get(long key);
+
+	/*
+	 * Caches a value for the key, evicting older entries if the cache is full
+	 */
+	void put(long key, long value);
+
+	/*
+	 * Removes the entry for the key, if any
+	 */
+	void remove(long key);
+
+	/*
+	 * Removes every entry whose key matches the predicate; returns the number removed
+	 */
+	long removeIf(LongPredicate stale);
+
+	/*
+	 * Removes every entry
+	 */
+	void clear();
+
+	/*
+	 * Returns the number of entries currently cached
+	 */
+	long size();
+
+	/*
+	 * Returns the number of lookups that found a value
+	 */
+	long hits();
+
+	/*
+	 * Returns the number of lookups that found nothing
+	 */
+	long misses();
+
+	/*
+	 * Returns the number of entries evicted to respect the size bound
+	 */
+	long evictions();
+
+	/*
+	 * Packs an unordered pair of non-negative ids into a single key
+	 */
+	static long key(int a, int b){
+		if(a > b){
+			int t = a;
+			a = b;
+			b = t;
+		}
+		return ((long) a << 32) | (b & 0xffffffffL);
+	}
+}
@@ -0,0 +1,22 @@
+/*
+ * Receives a callback for every shortest ancestral path search a WordNet runs
+ *
+ * Listeners are called on the thread that ran the search, so they must be thread-safe and cheap.
+ * Cache hits and callers waiting on another caller's search run no search and are not reported;
+ * the cache's own counters cover them. With no listener configured, WordNet takes no timings at all.
+ */
+public interface QueryListener {
+
+	/*
+	 * Called after each search
+	 * fanOut is the number of synset pairs the two nouns span, |A| x |B|, and visited the number of vertices the
+	 * search reached on either side; a single ancestor-index join reaches none
+	 */
+	void searched(String nounA, String nounB, int fanOut, long visited, long nanos);
+
+	/*
+	 * Called once when a WordNet has been built, with the time spent in each phase; 0 for a phase that did not run
+	 */
+	default void loaded(long parseNanos, long graphNanos, long dictionaryNanos, long validationNanos, long indexNanos){
+	}
+}
@@ -0,0 +1,161 @@
+import java.util.Arrays;
+
+/*
+ * Interval labels answering "is v a descendant of w?" for every pair of vertices of an acyclic CompactDigraph
+ *
+ * A depth-first search down the hyponym edges numbers every vertex in post-order, so the vertices of its
+ * search tree below w form one interval of numbers ending at w's own. Descendants reached only through
+ * other hypernyms (the DAG's extra edges) add further intervals, merged bottom-up from w's hyponyms, so w
+ * keeps a short sorted list of disjoint intervals. v descends from w exactly when v's number lies in one of
+ * them, which a binary search over w's list decides without touching the graph.
+ */
+public final class ReachabilityIndex {
+	private final int[] post;			// post-order number of each vertex
+	private final int[] offsets;		// start of each vertex's intervals in bounds, V+1 entries, counted in intervals
+	private final int[] bounds;			// lower and upper bound of every interval, inclusive, sorted within each vertex
+
+	private ReachabilityIndex(int[] post, int[] offsets, int[] bounds){
+		this.post = post;
+		this.offsets = offsets;
+		this.bounds = bounds;
+	}
+
+	/*
+	 * Labels every vertex of the given graph, or returns null if the graph has a cycle or the labels would
+	 * take more than maxBytes
+	 */
+	static ReachabilityIndex build(CompactDigraph G, long maxBytes){
+		int V = G.numVertices();
+		int[] post = new int[V];
+		int[] low = new int[V];				// smallest post-order number in each vertex's search tree
+		int[] finished = new int[V];		// vertices in post-order
+		int[] stack = new int[V];
+		int[] nextEdge = new int[V];
+		int count = 0;
+
+		Arrays.fill(post, -1);
+		Arrays.fill(low, -1);
+		for(int root = 0; root < V; root++){
+			if(G.outDegree(root) != 0)
+				continue;
+
+			int top = 0;
+			stack[top] = root;
+			nextEdge[top] = G.incomingStart(root);
+			low[root] = count;
+			while(top >= 0){
+				int v = stack[top];
+				if(nextEdge[top] == G.incomingEnd(v)){
+					post[v] = count;
+					finished[count++] = v;
+					top--;
+					continue;
+				}
+
+				int w = G.source(nextEdge[top]++);
+				if(low[w] == -1){
+					low[w] = count;
+					stack[++top] = w;
+					nextEdge[top] = G.incomingStart(w);
+				} else if(post[w] == -1){
+					return null;		// w is still on the stack, so the edge closes a cycle
+				}
+			}
+		}
+		if(count != V)
+			return null;		// vertices that reach no root lie on or above a cycle
+
+		// Every hyponym finishes before its hypernyms, so its intervals are complete when they are merged upwards
+		long fixedBytes = 4L * (2 * V + 1);
+		long total = 0;
+		int[][] intervals = new int[V][];
+		long[] scratch = new long[16];
+		for(int i = 0; i < V; i++){
+			int v = finished[i];
+			int n = 0;
+			scratch[n++] = ((long) low[v] << 32) | post[v];
+			for(int e = G.incomingStart(v), end = G.incomingEnd(v); e < end; e++){
+				int[] below = intervals[G.source(e)];
+				if(scratch.length < n + below.length / 2)
+					scratch = Arrays.copyOf(scratch, Math.max(scratch.length * 2, n + below.length / 2));
+				for(int k = 0; k < below.length; k += 2){
+					scratch[n++] = ((long) below[k] << 32) | below[k + 1];
+				}
+			}
+			Arrays.sort(scratch, 0, n);
+
+			// Merge intervals that overlap or touch
+			int merged = 0;
+			for(int k = 0; k < n; k++){
+				int lo = (int) (scratch[k] >>> 32);
+				int hi = (int) scratch[k];
+				if(merged > 0 && lo <= (int) scratch[merged - 1] + 1){
+					int top = Math.max((int) scratch[merged - 1], hi);
+					scratch[merged - 1] = (scratch[merged - 1] & 0xffffffff00000000L) | top;
+				} else{
+					scratch[merged++] = ((long) lo << 32) | hi;
+				}
+			}
+
+			int[] own = new int[2 * merged];
+			for(int k = 0; k < merged; k++){
+				own[2 * k] = (int) (scratch[k] >>> 32);
+				own[2 * k + 1] = (int) scratch[k];
+			}
+			intervals[v] = own;
+			total += merged;
+			if(fixedBytes + 8 * total > maxBytes)
+				return null;
+		}
+
+		int[] offsets = new int[V + 1];
+		for(int v = 0; v < V; v++){
+			offsets[v + 1] = offsets[v] + intervals[v].length / 2;
+		}
+		int[] bounds = new int[2 * offsets[V]];
+		for(int v = 0; v < V; v++){
+			System.arraycopy(intervals[v], 0, bounds, 2 * offsets[v], intervals[v].length);
+		}
+		return new ReachabilityIndex(post, offsets, bounds);
+	}
+
+	/*
+	 * Checks whether v is w or reaches w by following hypernym edges
+	 */
+	public boolean reaches(int v, int w){
+		int p = post[v];
+
+		// Find the last interval of w starting at or before p
+		int lo = offsets[w];
+		int hi = offsets[w + 1] - 1;
+		while(lo <= hi){
+			int mid = (lo + hi) >>> 1;
+			if(bounds[2 * mid] <= p)
+				lo = mid + 1;
+			else
+				hi = mid - 1;
+		}
+		return hi >= offsets[w] && p <= bounds[2 * hi + 1];
+	}
+
+	/*
+	 * Returns the number of vertices labelled
+	 */
+	public int numVertices(){
+		return post.length;
+	}
+
+	/*
+	 * Returns the total number of intervals stored
+	 */
+	public int numIntervals(){
+		return offsets[offsets.length - 1];
+	}
+
+	/*
+	 * Returns the heap footprint of the label arrays, in bytes
+	 */
+	public long memoryBytes(){
+		return 4L * (post.length + offsets.length + bounds.length);
+	}
+}
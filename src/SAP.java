@@ -1,27 +1,51 @@
 import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.Scanner;
 
-import structs.graphs.Edge;
-import structs.graphs.Vertex;
-
+/*
+ * Shortest ancestral path queries over a digraph
+ *
+ * A SAP is immutable after construction and safe to share between threads: the graph and index are
+ * read-only, and every thread searches with its own scratch arrays, allocated on its first query.
+ */
 public class SAP {
 	
-	private Digraph<Boolean> graph;
+	private final CompactDigraph graph;
+	private final AncestorIndex index;		// optional precomputed ancestor rows; null to search the graph
+	private final DepthLabels depths;		// depth labels used to prune searches; null if the graph has a cycle
+	private final ThreadLocal<SearchState> scratch;		// per-thread traversal state, sized for the graph
+	private static final int CANCEL_CHECK_MASK = 4095;		// searches without levels check for cancellation every 4096 vertices
 
 	/*
 	 * Constructor takes a Digraph (not necessarily a DAG)
 	 */
 	public SAP(Digraph<Boolean> G){
+		this(CompactDigraph.fromDigraph(G), null);
+	}
+	
+	/*
+	 * Constructor takes a compact digraph (not necessarily a DAG) and searches it directly
+	 */
+	public SAP(CompactDigraph G){
+		this(G, null);
+	}
+	
+	/*
+	 * Constructor takes a compact digraph and an optional ancestor index built from it
+	 * When an index is given, queries are answered by joining index rows instead of searching the graph
+	 */
+	public SAP(CompactDigraph G, AncestorIndex index){
 		if(G == null)
 			throw new NullPointerException("Argument given is null");
+		if(index != null && index.numVertices() != G.numVertices())
+			throw new IllegalArgumentException("Index was not built from the given digraph");
 		
 		this.graph = G;
+		this.index = index;
+		this.depths = DepthLabels.build(G);
+		this.scratch = ThreadLocal.withInitial(() -> new SearchState(G.numVertices()));
 	}
 	
 	/*
@@ -32,35 +56,31 @@ public class SAP {
 	}
 	
 	/*
-	 * Checks if the digraph is rooted
+	 * Checks if the digraph is a rooted DAG
 	 */
 	public boolean isRootedDAG(){
-		return graph.isRooted();
+		return new GraphValidation(graph).isRootedDAG();
+	}
+	
+	/*
+	 * Returns the topological order and depth labels of the digraph, or null if it has a cycle
+	 */
+	DepthLabels depths(){
+		return depths;
 	}
 	
 	/*
 	 * Returns the length of the shortest-ancestral path between v and w; -1 if no such path exists
 	 */
 	public int length(int v, int w){
-		ArrayList<Integer> listA = new ArrayList<>(); 
-		listA.add(v);
-		
-		ArrayList<Integer> listB = new ArrayList<>();
-		listB.add(w);
-		
-		return length(listA, listB);
+		return findCommonAncestor(new int[]{ v }, new int[]{ w }).getDistance();
 	}
 	
 	/*
 	 * Returns a common ancestor of v and w that participates in a shortest-ancestral path; -1 if no such path exists
 	 */
 	public int ancestor(int v, int w){
-		ArrayList<Integer> listA = new ArrayList<>(); 
-		listA.add(v);
-		ArrayList<Integer> listB = new ArrayList<>();
-		listB.add(w);
-		
-		return ancestor(listA, listB);
+		return findCommonAncestor(new int[]{ v }, new int[]{ w }).getAncestor();
 	}
 	
 	/*
@@ -83,102 +103,589 @@ public class SAP {
 			throw new NullPointerException("Argument given was null");
 		
 		CommonAncestor ancestor = findCommonAncestor(v, w);
-		if(ancestor.getAncestor() == null)
-			return -1;
-		
-		int vertex = ancestor.getAncestor().getElement();
+		return ancestor.getAncestor();
+	}
+	
+	/*
+	 * Finds the common ancestor that participates in a shortest ancestral path for any vertex in listA and any vertex in listB
+	 */
+	CommonAncestor findCommonAncestor(Iterable<Integer> listA, Iterable<Integer> listB){
+		if(listA == null || listB == null)
+			throw new NullPointerException("Argument given was null");
 		
-		return vertex;
+		return findCommonAncestor(toArray(listA), toArray(listB));
 	}
 	
 	/*
 	 * Finds the common ancestor that participates in a shortest ancestral path for any vertex in listA and any vertex in listB
+	 *
+	 * Both sets are seeded at once and searched upwards in lockstep, one BFS level at a time, always advancing the side
+	 * with the smaller frontier. A side stops once its next level cannot beat the best distance found so far, so the
+	 * search ends as soon as neither side can improve on it.
+	 *
+	 * On a DAG the depth labels tighten this further. A path through x's hypernyms costs at least one more edge per
+	 * side and must climb to a depth the other side can reach, so a vertex is not expanded when that lower bound cannot
+	 * beat the limit. With a single root, the root itself bounds the answer before any vertex is expanded.
+	 *
+	 * The search checks before each level whether its thread has been interrupted, and if so gives up with a
+	 * CancellationException, so an abandoned query stops within one level rather than running to completion.
 	 */
-	private CommonAncestor findCommonAncestor(Iterable<Integer> listA, Iterable<Integer> listB){
+	CommonAncestor findCommonAncestor(int[] listA, int[] listB){
 		if(listA == null || listB == null)
 			throw new NullPointerException("Argument given was null");
 		
-		HashMap<Vertex<Integer>, Integer> ancestors = new HashMap<>();
-		CommonAncestor currentMinAncestor = new CommonAncestor(null, Integer.MAX_VALUE);
-
-		for(int valB : listB){
-			Vertex<Integer> vertexB = graph.getVertexByID(valB);
-			calculateAncestorDistances(vertexB, ancestors);		
+		if(index != null)
+			return findIndexedAncestor(listA, listB);
+		
+		SearchState state = scratch.get();
+		try{
+			Frontier a = state.a;
+			Frontier b = state.b;
+			int best = Integer.MAX_VALUE;
+			int bestAncestor = -1;
+			
+			for(int v : listA){
+				validateVertex(v);
+				a.seed(v);
+			}
+			for(int v : listB){
+				validateVertex(v);
+				b.seed(v);
+				if(best != 0 && a.dist[v] == 0){
+					best = 0;
+					bestAncestor = v;
+				}
+			}
 			
-			for(int valA : listA){
-				Vertex<Integer> vertexA = graph.getVertexByID(valA);
-				CommonAncestor commonAncestor = compareAndFindCommonAncestor(vertexA, ancestors);
-				if(commonAncestor.getDistance() < currentMinAncestor.getDistance()){
-					currentMinAncestor.setDistance(commonAncestor.getDistance());
-					currentMinAncestor.setAncestor(commonAncestor.getAncestor());
+			// An empty side has no ancestors, and its minimum depth would overflow the root bound
+			if(listA.length == 0 || listB.length == 0)
+				return new CommonAncestor(-1, -1);
+			
+			// Paths up through the root cost at most the sum of the shallowest depths on either side
+			int minDepthA = 0;
+			int minDepthB = 0;
+			int rootBound = Integer.MAX_VALUE;
+			if(depths != null && best != 0){
+				minDepthA = depths.minDepth(listA);
+				minDepthB = depths.minDepth(listB);
+				if(depths.root() != -1)
+					rootBound = minDepthA + minDepthB;
+			}
+			
+			while(true){
+				AsyncQueries.checkCancelled();
+				
+				// Searching on is only worth it for paths strictly shorter than the best found, or tying the root bound
+				int limit = Math.min(best, (rootBound == Integer.MAX_VALUE) ? rootBound : rootBound + 1);
+				boolean aActive = a.hasNext() && a.level + 1 < limit;
+				boolean bActive = b.hasNext() && b.level + 1 < limit;
+				if(!aActive && !bActive)
+					break;
+				
+				Frontier current = (!bActive || (aActive && a.size() <= b.size())) ? a : b;
+				Frontier other = (current == a) ? b : a;
+				int otherMinDepth = (current == a) ? minDepthB : minDepthA;
+				
+				// Expand every vertex on the current level, checking each newly reached vertex against the other side
+				int next = current.level + 1;
+				for(int end = current.levelEnd; current.head < end; current.head++){
+					int source = current.queue[current.head];
+					if(depths != null && next + Math.max(0, otherMinDepth - depths.maxDepth(source) + 1) >= limit)
+						continue;
+					
+					for(int i = graph.outgoingStart(source), stop = graph.outgoingEnd(source); i < stop; i++){
+						int target = graph.target(i);
+						if(current.dist[target] != -1)
+							continue;
+						
+						current.visit(target, next);
+						int otherDist = other.dist[target];
+						if(otherDist != -1 && next + otherDist < best){
+							best = next + otherDist;
+							bestAncestor = target;
+							limit = Math.min(limit, best);
+						}
+					}
 				}
+				current.level = next;
+				current.levelEnd = current.tail;
 			}
-			ancestors = new HashMap<>();
+			
+			if(rootBound < best)
+				return new CommonAncestor(depths.root(), rootBound);
+			if(bestAncestor == -1)
+				return new CommonAncestor(-1, -1);
+			return new CommonAncestor(bestAncestor, best);
+		} finally{
+			state.a.reset();
+			state.b.reset();
 		}
-		return currentMinAncestor;
 	}
 	
 	/*
-	 * Calculates and stores the distance(s) from a given source vertex to all of its ancestors
+	 * Finds the common ancestor of a shortest ancestral path using the ancestor index
+	 * A single pair is a merge-join of two sorted rows; larger sets load the rows of listA into the
+	 * scratch distance array (keeping the minimum per ancestor) and probe it with the rows of listB
 	 */
-	private void calculateAncestorDistances(Vertex<Integer> source, Map<Vertex<Integer>, Integer> ancestors){
-		if(source == null || ancestors == null)
-			throw new NullPointerException("Argument given was null");
+	private CommonAncestor findIndexedAncestor(int[] listA, int[] listB){
+		for(int v : listA){
+			validateVertex(v);
+		}
+		for(int v : listB){
+			validateVertex(v);
+		}
+		
+		if(listA.length == 1 && listB.length == 1){
+			long joined = index.join(listA[0], listB[0]);
+			if(joined == -1)
+				return new CommonAncestor(-1, -1);
+			return new CommonAncestor((int) joined, (int) (joined >>> 32));
+		}
 		
-		LinkedList<Vertex<Integer>> notVisited = new LinkedList<>();
-		int distFromSource = 0;
-		notVisited.addFirst(source);
+		Frontier a = scratch.get().a;
+		try{
+			for(int v : listA){
+				for(int i = index.rowStart(v), end = index.rowEnd(v); i < end; i++){
+					int ancestor = index.ancestorAt(i);
+					int dist = index.distanceAt(i);
+					if(a.dist[ancestor] == -1)
+						a.visit(ancestor, dist);
+					else if(dist < a.dist[ancestor])
+						a.dist[ancestor] = dist;
+				}
+			}
+			
+			int best = Integer.MAX_VALUE;
+			int bestAncestor = -1;
+			for(int v : listB){
+				for(int i = index.rowStart(v), end = index.rowEnd(v); i < end; i++){
+					int distA = a.dist[index.ancestorAt(i)];
+					if(distA != -1 && distA + index.distanceAt(i) < best){
+						best = distA + index.distanceAt(i);
+						bestAncestor = index.ancestorAt(i);
+					}
+				}
+			}
+			
+			if(bestAncestor == -1)
+				return new CommonAncestor(-1, -1);
+			return new CommonAncestor(bestAncestor, best);
+		} finally{
+			a.reset();
+		}
+	}
+	
+	/*
+	 * Visits every vertex in order of increasing ancestral distance from the given sources, stopping once the visitor returns false
+	 *
+	 * The ancestral distance from the sources to v is the length of a path that climbs hypernyms from a source and then
+	 * descends hyponyms to v. Both phases are searched in lockstep by level, the climb on one frontier and the descent on
+	 * the other, so every vertex is visited once, at its shortest distance, without touching the rest of the graph.
+	 */
+	void visitByDistance(int[] sources, DistanceVisitor visitor){
+		if(sources == null || visitor == null)
+			throw new NullPointerException("Argument given was null");
 		
-		while(!notVisited.isEmpty()){
-			Vertex<Integer> currentSource = notVisited.removeFirst();
-			ancestors.put(currentSource, distFromSource++);
+		SearchState state = scratch.get();
+		Frontier up = state.a;
+		Frontier down = state.b;
+		try{
+			for(int v : sources){
+				validateVertex(v);
+				if(up.dist[v] == -1){
+					up.seed(v);
+					if(!visitor.visit(v, 0))
+						return;
+				}
+			}
 			
-			for(Edge<Boolean> e : graph.outgoingEdges(currentSource)){
-				Vertex<Integer> target = graph.opposite(currentSource, e);
-				boolean targetNotVisited = (ancestors.get(target) == null ? true : false);
+			for(int level = 0; up.hasNext() || down.hasNext(); level++){
+				AsyncQueries.checkCancelled();
+				int next = level + 1;
+				int upEnd = up.tail;
+				int downEnd = down.tail;
 				
-				if(targetNotVisited){
-					notVisited.addLast(target);
+				// Climbing: keep climbing, or turn and descend towards the hyponyms
+				for(; up.head < upEnd; up.head++){
+					int source = up.queue[up.head];
+					for(int i = graph.outgoingStart(source), stop = graph.outgoingEnd(source); i < stop; i++){
+						int target = graph.target(i);
+						if(up.dist[target] != -1)
+							continue;
+						boolean first = down.dist[target] == -1;
+						up.visit(target, next);
+						if(first && !visitor.visit(target, next))
+							return;
+					}
+					for(int i = graph.incomingStart(source), stop = graph.incomingEnd(source); i < stop; i++){
+						int target = graph.source(i);
+						if(up.dist[target] != -1 || down.dist[target] != -1)
+							continue;
+						down.visit(target, next);
+						if(!visitor.visit(target, next))
+							return;
+					}
+				}
+				
+				// Descending: a vertex already climbed to descends from there at no greater cost
+				for(; down.head < downEnd; down.head++){
+					int source = down.queue[down.head];
+					for(int i = graph.incomingStart(source), stop = graph.incomingEnd(source); i < stop; i++){
+						int target = graph.source(i);
+						if(up.dist[target] != -1 || down.dist[target] != -1)
+							continue;
+						down.visit(target, next);
+						if(!visitor.visit(target, next))
+							return;
+					}
 				}
 			}
-		}	
+		} finally{
+			up.reset();
+			down.reset();
+		}
 	}
 	
 	/*
-	 * Finds the common ancestor between two vertices that participates in their shortest-ancestral path 
+	 * Checks whether any of the given vertices is the ancestor or reaches it by following hypernym edges
+	 * With the ancestor index this is a binary search of each row; otherwise a search up from the vertices,
+	 * which on a DAG skips every vertex whose longest path to a root is no longer than the ancestor's
 	 */
-	private CommonAncestor compareAndFindCommonAncestor(Vertex<Integer> v, Map<Vertex<Integer>, Integer> foundAncestors){
-		if(v == null || foundAncestors == null)
+	boolean isAncestor(int[] sources, int ancestor){
+		if(sources == null)
 			throw new NullPointerException("Argument given was null");
+		validateVertex(ancestor);
 		
-		LinkedList<Vertex<Integer>> notVisited = new LinkedList<>();
-		CommonAncestor currentAncestor = new CommonAncestor(null, Integer.MAX_VALUE);
-		int distFromV = 0;
+		if(index != null){
+			for(int v : sources){
+				validateVertex(v);
+				int lo = index.rowStart(v);
+				int hi = index.rowEnd(v) - 1;
+				while(lo <= hi){
+					int mid = (lo + hi) >>> 1;
+					int id = index.ancestorAt(mid);
+					if(id == ancestor)
+						return true;
+					if(id < ancestor)
+						lo = mid + 1;
+					else
+						hi = mid - 1;
+				}
+			}
+			return false;
+		}
 		
-		notVisited.addFirst(v);
+		Frontier a = scratch.get().a;
+		try{
+			for(int v : sources){
+				validateVertex(v);
+				if(v == ancestor)
+					return true;
+				a.seed(v);
+			}
+			int ancestorDepth = (depths == null) ? -1 : depths.maxDepth(ancestor);
+			for(; a.head < a.tail; a.head++){
+				if((a.head & CANCEL_CHECK_MASK) == 0)
+					AsyncQueries.checkCancelled();
+				int source = a.queue[a.head];
+				if(depths != null && depths.maxDepth(source) <= ancestorDepth)
+					continue;
+				for(int i = graph.outgoingStart(source), end = graph.outgoingEnd(source); i < end; i++){
+					int target = graph.target(i);
+					if(target == ancestor)
+						return true;
+					if(a.dist[target] == -1)
+						a.visit(target, a.dist[source] + 1);
+				}
+			}
+			return false;
+		} finally{
+			a.reset();
+		}
+	}
+	
+	/*
+	 * Returns the number of vertices reached by every search the calling thread has run on this SAP
+	 * Reading it before and after a search gives the work that search did
+	 */
+	long visitedCount(){
+		SearchState state = scratch.get();
+		return state.a.reached + state.b.reached;
+	}
+	
+	/*
+	 * Returns every ancestor of the given vertices with its distance from the nearest of them
+	 * The table can be reused to answer many queries that share this side of the search
+	 */
+	AncestorTable ancestorTable(int[] sources){
+		if(sources == null)
+			throw new NullPointerException("Argument given was null");
+		
+		Frontier a = scratch.get().a;
+		try{
+			if(index != null){
+				for(int v : sources){
+					validateVertex(v);
+					for(int i = index.rowStart(v), end = index.rowEnd(v); i < end; i++){
+						int ancestor = index.ancestorAt(i);
+						int dist = index.distanceAt(i);
+						if(a.dist[ancestor] == -1)
+							a.visit(ancestor, dist);
+						else if(dist < a.dist[ancestor])
+							a.dist[ancestor] = dist;
+					}
+				}
+			} else{
+				for(int v : sources){
+					validateVertex(v);
+					a.seed(v);
+				}
+				for(; a.head < a.tail; a.head++){
+					if((a.head & CANCEL_CHECK_MASK) == 0)
+						AsyncQueries.checkCancelled();
+					int source = a.queue[a.head];
+					for(int i = graph.outgoingStart(source), end = graph.outgoingEnd(source); i < end; i++){
+						int target = graph.target(i);
+						if(a.dist[target] == -1)
+							a.visit(target, a.dist[source] + 1);
+					}
+				}
+			}
+			
+			int[] ids = Arrays.copyOf(a.queue, a.tail);
+			Arrays.sort(ids);
+			int[] dists = new int[ids.length];
+			for(int i = 0; i < ids.length; i++){
+				dists[i] = a.dist[ids[i]];
+			}
+			return new AncestorTable(ids, dists);
+		} finally{
+			a.reset();
+		}
+	}
+	
+	/*
+	 * Finds the common ancestor of a shortest ancestral path between the vertices a table was built from and listB
+	 * Only listB is searched; it stops as soon as its next level cannot beat the best distance found so far, and
+	 * on a DAG skips expanding vertices whose depth-based lower bound cannot beat it either
+	 */
+	CommonAncestor findCommonAncestor(AncestorTable table, int[] listB){
+		if(table == null || listB == null)
+			throw new NullPointerException("Argument given was null");
 		
-		while(!notVisited.isEmpty()){
-			Vertex<Integer> source = notVisited.removeFirst();
-			distFromV++;
+		SearchState state = scratch.get();
+		Frontier a = state.a;
+		Frontier b = state.b;
+		try{
+			for(int i = 0; i < table.ids.length; i++){
+				a.visit(table.ids[i], table.dists[i]);
+			}
+			
+			int best = Integer.MAX_VALUE;
+			int bestAncestor = -1;
 			
-			for(Edge<Boolean> e : graph.outgoingEdges(source)){
-				Vertex<Integer> target = graph.opposite(source, e);
-				Integer distToTarget = foundAncestors.get(target);
-				boolean hasBeenVisited = (distToTarget == null ? false : true);
+			if(index != null){
+				for(int v : listB){
+					validateVertex(v);
+					for(int i = index.rowStart(v), end = index.rowEnd(v); i < end; i++){
+						int distA = a.dist[index.ancestorAt(i)];
+						if(distA != -1 && distA + index.distanceAt(i) < best){
+							best = distA + index.distanceAt(i);
+							bestAncestor = index.ancestorAt(i);
+						}
+					}
+				}
+			} else{
+				for(int v : listB){
+					validateVertex(v);
+					b.seed(v);
+					if(a.dist[v] != -1 && a.dist[v] < best){
+						best = a.dist[v];
+						bestAncestor = v;
+					}
+				}
+				if(table.ids.length == 0 || listB.length == 0)
+					return new CommonAncestor(-1, -1);
+				
+				// The shallowest vertex of the table's sources bounds how far up listB has to climb
+				int minDepthA = 0;
+				int rootBound = Integer.MAX_VALUE;
+				if(depths != null && best != 0){
+					minDepthA = Integer.MAX_VALUE;
+					for(int i = 0; i < table.ids.length; i++){
+						minDepthA = Math.min(minDepthA, depths.minDepth(table.ids[i]) + table.dists[i]);
+					}
+					int root = depths.root();
+					if(root != -1 && a.dist[root] != -1)
+						rootBound = a.dist[root] + depths.minDepth(listB);
+				}
 				
-				if(!hasBeenVisited){
-					notVisited.addLast(target);
-				} else {
-					int totalDist = distFromV + distToTarget;
-					if(totalDist < currentAncestor.getDistance()){
-						currentAncestor.setDistance(totalDist);
-						currentAncestor.setAncestor(target);
+				int limit = Math.min(best, (rootBound == Integer.MAX_VALUE) ? rootBound : rootBound + 1);
+				while(b.hasNext() && b.level + 1 < limit){
+					AsyncQueries.checkCancelled();
+					int next = b.level + 1;
+					for(int end = b.levelEnd; b.head < end; b.head++){
+						int source = b.queue[b.head];
+						if(depths != null && next + Math.max(0, minDepthA - depths.maxDepth(source) + 1) >= limit)
+							continue;
+						
+						for(int i = graph.outgoingStart(source), stop = graph.outgoingEnd(source); i < stop; i++){
+							int target = graph.target(i);
+							if(b.dist[target] != -1)
+								continue;
+							
+							b.visit(target, next);
+							int distA = a.dist[target];
+							if(distA != -1 && next + distA < best){
+								best = next + distA;
+								bestAncestor = target;
+								limit = Math.min(limit, best);
+							}
+						}
 					}
+					b.level = next;
+					b.levelEnd = b.tail;
+				}
+				
+				if(rootBound < best){
+					best = rootBound;
+					bestAncestor = depths.root();
 				}
 			}
-		}	
 			
-		return currentAncestor;
+			if(bestAncestor == -1)
+				return new CommonAncestor(-1, -1);
+			return new CommonAncestor(bestAncestor, best);
+		} finally{
+			a.reset();
+			b.reset();
+		}
+	}
+	
+	/*
+	 * Throws an exception if v is not a vertex of this digraph
+	 */
+	private void validateVertex(int v){
+		if(v < 0 || v >= graph.numVertices())
+			throw new IndexOutOfBoundsException("Vertex " + v + " is not between 0 and " + (graph.numVertices() - 1));
+	}
+	
+	/*
+	 * Copies the vertices of an iterable into a primitive array
+	 */
+	private static int[] toArray(Iterable<Integer> vertices){
+		int[] values = new int[8];
+		int count = 0;
+		for(int v : vertices){
+			if(count == values.length)
+				values = Arrays.copyOf(values, count * 2);
+			values[count++] = v;
+		}
+		return Arrays.copyOf(values, count);
+	}
+	
+	/*
+	 * Callback for visitByDistance(); returns false to stop the search
+	 */
+	interface DistanceVisitor {
+		boolean visit(int v, int distance);
+	}
+	
+	/*
+	 * Ancestors of a set of vertices, sorted by id, with the distance from the nearest vertex of the set
+	 */
+	static final class AncestorTable {
+		final int[] ids;		// ancestor ids in ascending order
+		final int[] dists;		// distance to the ancestor at the same position in ids
+		
+		AncestorTable(int[] ids, int[] dists){
+			this.ids = ids;
+			this.dists = dists;
+		}
+		
+		/*
+		 * Merge-joins this table with another; returns the shortest ancestral distance between their vertex sets, or -1
+		 */
+		int distance(AncestorTable other){
+			int i = 0, j = 0;
+			int best = Integer.MAX_VALUE;
+			while(i < ids.length && j < other.ids.length){
+				if(ids[i] < other.ids[j]){
+					i++;
+				} else if(ids[i] > other.ids[j]){
+					j++;
+				} else{
+					best = Math.min(best, dists[i] + other.dists[j]);
+					i++;
+					j++;
+				}
+			}
+			return (best == Integer.MAX_VALUE) ? -1 : best;
+		}
+	}
+	
+	/*
+	 * Per-thread traversal scratch state, sized once for the graph and reused by every search on that thread
+	 */
+	private static final class SearchState {
+		final Frontier a;		// search state for the first vertex set
+		final Frontier b;		// search state for the second vertex set
+		
+		SearchState(int V){
+			this.a = new Frontier(V);
+			this.b = new Frontier(V);
+		}
+	}
+	
+	/*
+	 * One side of the bidirectional search: a distance array and the BFS queue of the vertices it has reached
+	 * The queue doubles as the touched-list, so only reached vertices are cleared between searches
+	 */
+	private static final class Frontier {
+		final int[] dist;		// distance from the nearest source, -1 if not reached
+		final int[] queue;		// every vertex reached, in BFS order
+		int head;				// next vertex to expand
+		int tail;				// one past the last vertex reached
+		int levelEnd;			// one past the last vertex on the current level
+		int level;				// distance of the vertices on the current level
+		long reached;			// vertices reached by every search on this frontier so far
+		
+		Frontier(int V){
+			this.dist = new int[V];
+			this.queue = new int[V];
+			Arrays.fill(dist, -1);
+		}
+		
+		void seed(int v){
+			if(dist[v] == -1){
+				visit(v, 0);
+				levelEnd = tail;
+			}
+		}
+		
+		void visit(int v, int d){
+			dist[v] = d;
+			queue[tail++] = v;
+		}
+		
+		boolean hasNext(){
+			return head < tail;
+		}
+		
+		int size(){
+			return tail - head;
+		}
+		
+		void reset(){
+			reached += tail;
+			for(int i = 0; i < tail; i++){
+				dist[queue[i]] = -1;
+			}
+			head = 0;
+			tail = 0;
+			levelEnd = 0;
+			level = 0;
+		}
 	}
 	
 	/* 
@@ -186,15 +693,12 @@ public class SAP {
 	 */
 	public class CommonAncestor{
 		private int distance;				// minimum distance associated with this common ancestor instance
-		private Vertex<Integer> ancestor;	// vertex associated with this common ancestor instance
+		private int ancestor;				// vertex associated with this common ancestor instance; -1 if none
 		
 		/*
 		 * Constructor creates an instance of a CommonAncestor with the vertex of the ancestor v and its total path distance d
 		 */
-		public CommonAncestor(Vertex<Integer> v, int d){
-			if(v == null)
-				throw new NullPointerException("Argument given was null");
-			
+		public CommonAncestor(int v, int d){
 			this.distance = d;
 			this.ancestor = v;
 		}
@@ -209,7 +713,7 @@ public class SAP {
 		/*
 		 * Returns the ancestor associated with this CommonAncestor
 		 */
-		public Vertex<Integer> getAncestor(){
+		public int getAncestor(){
 			return this.ancestor;
 		}
 		
@@ -223,7 +727,7 @@ public class SAP {
 		/*
 		 * Sets the ancestor vertex associated with this CommonAncestor
 		 */
-		public void setAncestor(Vertex<Integer> v){
+		public void setAncestor(int v){
 			this.ancestor = v;
 		}
 	}
@@ -231,7 +735,7 @@ public class SAP {
 	// Unit testing
 	public static void main(String[] args) throws FileNotFoundException{
 		Scanner digraphFile = new Scanner(new BufferedReader(new FileReader("digraph1.txt")));
-		Digraph<Boolean> graph = new Digraph<Boolean>(digraphFile);
+		CompactDigraph graph = new CompactDigraph(digraphFile);
 		SAP sap = new SAP(graph);
 		
 		int length = sap.length(1,6);
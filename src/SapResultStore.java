@@ -0,0 +1,384 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Persistent store of computed shortest ancestral paths, keyed like PairCache, that survives restarts
+ *
+ * Two files live in the store's directory, both starting with a magic number, a format version and
+ * the checksum of the taxonomy their results belong to:
+ *   results.log    (key, value) records appended as results are computed
+ *   results.table  (key, value) records sorted by key, memory-mapped and binary searched
+ * Results are queued by the querying threads and appended by one background writer, which also
+ * replays the log when the store opens and, once the log holds enough records, merges it into a new
+ * table that atomically replaces the old one. Files written for another checksum are discarded, so a
+ * changed taxonomy starts with an empty store. Until the writer has replayed the log, lookups miss.
+ * A lock file keeps a second store, in this process or another, from opening the same directory.
+ */
+final class SapResultStore {
+	private static final int TABLE_MAGIC = 0x574E5254;		// "WNRT"
+	private static final int LOG_MAGIC = 0x574E524C;		// "WNRL"
+	private static final int FORMAT = 1;
+	private static final int HEADER_BYTES = 16;				// magic, format, checksum
+	private static final int RECORD_BYTES = 16;				// key, value
+	private static final int COMPACT_AFTER = 1 << 16;		// log records that trigger a compaction
+	private static final int QUEUE_CAPACITY = 1 << 16;		// results waiting to be written; more are dropped
+	private static final long POLL_MILLIS = 100;			// how often an idle writer checks whether the store was closed
+
+	private final Path tablePath;
+	private final Path logPath;
+	private final long checksum;
+	private final ArrayBlockingQueue<long[]> pending = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+
+	private volatile boolean loaded;							// set once the writer has opened both files
+	private volatile LongBuffer table = LongBuffer.allocate(0);		// sorted (key, value) pairs of the table
+	private volatile ConcurrentHashMap<Long, Long> logged = new ConcurrentHashMap<>();	// records in the log
+	private FileChannel log;									// only used by the writer, or by close() once it has stopped
+	private final FileChannel lockChannel;
+	private final FileLock lock;								// held on the lock file until the store is closed
+	private final Thread writer;
+	private final Thread shutdownHook;						// closes the store if the process ends first
+	private volatile boolean closed;
+
+	/*
+	 * Opens the store in the given directory for the taxonomy with the given checksum
+	 * The files are read and replayed in the background; lookups miss until that is done
+	 */
+	SapResultStore(Path directory, long checksum) throws IOException{
+		Files.createDirectories(directory);
+		this.tablePath = directory.resolve("results.table");
+		this.logPath = directory.resolve("results.log");
+		this.checksum = checksum;
+
+		this.lockChannel = FileChannel.open(directory.resolve("results.lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		FileLock acquired;
+		try{
+			acquired = lockChannel.tryLock();
+		} catch(OverlappingFileLockException e){
+			acquired = null;
+		}
+		if(acquired == null){
+			lockChannel.close();
+			throw new IOException("Result store " + directory + " is already in use");
+		}
+		this.lock = acquired;
+
+		this.writer = new Thread(this::writeLoop, "wordnet-result-store");
+		writer.setDaemon(true);
+		writer.start();
+		this.shutdownHook = new Thread(this::close, "wordnet-result-store-close");
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+	}
+
+	/*
+	 * Returns the stored value for the key, or PairCache.NOT_FOUND
+	 */
+	long get(long key){
+		if(!loaded)
+			return PairCache.NOT_FOUND;
+
+		Long value = logged.get(key);
+		if(value != null){
+			hits.increment();
+			return value;
+		}
+
+		LongBuffer t = table;
+		int low = 0;
+		int high = t.limit() / 2 - 1;
+		while(low <= high){
+			int mid = (low + high) >>> 1;
+			long k = t.get(2 * mid);
+			if(k < key){
+				low = mid + 1;
+			} else if(k > key){
+				high = mid - 1;
+			} else{
+				hits.increment();
+				return t.get(2 * mid + 1);
+			}
+		}
+		return PairCache.NOT_FOUND;
+	}
+
+	/*
+	 * Queues a result to be appended to the log; dropped if the writer has fallen too far behind or the store is closed
+	 */
+	void add(long key, long value){
+		if(closed)
+			return;
+		if(!pending.offer(new long[]{ key, value }))
+			dropped.increment();
+	}
+
+	/*
+	 * Returns the number of results stored on disk
+	 */
+	long size(){
+		return table.limit() / 2 + logged.size();
+	}
+
+	/*
+	 * Returns the number of lookups answered from disk
+	 */
+	long hits(){
+		return hits.sum();
+	}
+
+	/*
+	 * Returns the number of results not stored because the queue was full
+	 */
+	long dropped(){
+		return dropped.sum();
+	}
+
+	/*
+	 * Stops the writer, writes out whatever is still queued, and releases the files and the directory lock
+	 * Called at shutdown if the store is still open; later calls do nothing
+	 */
+	void close(){
+		synchronized(this){
+			if(closed)
+				return;
+			closed = true;
+		}
+
+		// The writer is never interrupted, since that would close the log channel under a write
+		boolean interrupted = false;
+		while(writer.isAlive()){
+			try{
+				writer.join();
+			} catch(InterruptedException e){
+				interrupted = true;
+			}
+		}
+
+		synchronized(this){
+			try{
+				if(loaded){
+					List<long[]> batch = new ArrayList<>();
+					pending.drainTo(batch);
+					if(!batch.isEmpty())
+						append(batch);
+				}
+			} catch(IOException e){
+				// The results still queued are lost, which a cache can afford
+			} finally{
+				loaded = false;
+				pending.clear();
+				closeQuietly(log);
+				try{
+					lock.release();
+				} catch(IOException e){
+					// Closing the channel releases the lock as well
+				}
+				closeQuietly(lockChannel);
+			}
+		}
+
+		try{
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		} catch(IllegalStateException e){
+			// Already shutting down, possibly in the hook itself
+		}
+		if(interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	/*
+	 * Opens both files, then appends queued results until the store is closed
+	 */
+	private void writeLoop(){
+		try{
+			synchronized(this){
+				if(closed)
+					return;
+				open();
+			}
+			loaded = true;
+
+			List<long[]> batch = new ArrayList<>();
+			while(!closed){
+				long[] first = pending.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+				if(first == null)
+					continue;
+				batch.add(first);
+				pending.drainTo(batch);
+				synchronized(this){
+					append(batch);
+				}
+				batch.clear();
+			}
+		} catch(IOException e){
+			// The store is a cache: without its files it just stops answering and recording
+			loaded = false;
+			pending.clear();
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/*
+	 * Maps the table and replays the log, discarding either if it belongs to another taxonomy or is damaged
+	 */
+	private void open() throws IOException{
+		if(Files.exists(tablePath)){
+			try(FileChannel channel = FileChannel.open(tablePath, StandardOpenOption.READ)){
+				ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				if(validHeader(data, TABLE_MAGIC) && (data.limit() - HEADER_BYTES) % RECORD_BYTES == 0){
+					data.position(HEADER_BYTES);
+					table = data.slice().asLongBuffer();
+				} else{
+					Files.delete(tablePath);
+				}
+			}
+		}
+
+		log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		ByteBuffer data = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE, log.size()));
+		while(data.hasRemaining()){
+			if(log.read(data) < 0)
+				break;
+		}
+		data.flip();
+
+		if(validHeader(data, LOG_MAGIC)){
+			// A record torn by a crash is cut off; every whole record is replayed
+			int records = (data.limit() - HEADER_BYTES) / RECORD_BYTES;
+			for(int r = 0; r < records; r++){
+				int at = HEADER_BYTES + r * RECORD_BYTES;
+				logged.put(data.getLong(at), data.getLong(at + 8));
+			}
+			log.truncate(HEADER_BYTES + (long) records * RECORD_BYTES);
+		} else{
+			log.truncate(0);
+			log.write(header(LOG_MAGIC), 0);
+		}
+		log.position(log.size());
+
+		if(logged.size() >= COMPACT_AFTER)
+			compact();
+	}
+
+	/*
+	 * Appends records to the log, compacting once it holds enough
+	 */
+	private void append(List<long[]> batch) throws IOException{
+		ByteBuffer records = ByteBuffer.allocate(batch.size() * RECORD_BYTES);
+		for(long[] record : batch){
+			records.putLong(record[0]).putLong(record[1]);
+		}
+		records.flip();
+		while(records.hasRemaining()){
+			log.write(records);
+		}
+		for(long[] record : batch){
+			logged.put(record[0], record[1]);
+		}
+
+		if(logged.size() >= COMPACT_AFTER)
+			compact();
+	}
+
+	/*
+	 * Merges the table and the log into a new table, swaps it in, and empties the log
+	 * The new table is written beside the old one and moved over it, so a crash leaves one or the other
+	 */
+	private void compact() throws IOException{
+		ConcurrentHashMap<Long, Long> merging = logged;
+		long[] keys = new long[merging.size()];
+		int n = 0;
+		for(Long key : merging.keySet()){
+			keys[n++] = key;
+		}
+		keys = Arrays.copyOf(keys, n);
+		Arrays.sort(keys);
+
+		LongBuffer old = table;
+		int oldCount = old.limit() / 2;
+		Path temporary = tablePath.resolveSibling("results.table.tmp");
+		try(FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+			out.write(header(TABLE_MAGIC));
+			ByteBuffer chunk = ByteBuffer.allocate(RECORD_BYTES * 4096);
+			int i = 0;
+			int j = 0;
+			while(i < oldCount || j < keys.length){
+				long key;
+				long value;
+				if(j == keys.length || (i < oldCount && old.get(2 * i) < keys[j])){
+					key = old.get(2 * i);
+					value = old.get(2 * i + 1);
+					i++;
+				} else{
+					key = keys[j];
+					value = merging.get(key);
+					if(i < oldCount && old.get(2 * i) == key)
+						i++;
+					j++;
+				}
+				chunk.putLong(key).putLong(value);
+				if(!chunk.hasRemaining()){
+					chunk.flip();
+					while(chunk.hasRemaining()){
+						out.write(chunk);
+					}
+					chunk.clear();
+				}
+			}
+			chunk.flip();
+			while(chunk.hasRemaining()){
+				out.write(chunk);
+			}
+			out.force(true);
+		}
+		Files.move(temporary, tablePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		try(FileChannel channel = FileChannel.open(tablePath, StandardOpenOption.READ)){
+			ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			data.position(HEADER_BYTES);
+			table = data.slice().asLongBuffer();
+		}
+
+		// Readers may find a result in both the new table and the old log until the log is replaced
+		logged = new ConcurrentHashMap<>();
+		log.truncate(HEADER_BYTES);
+		log.position(HEADER_BYTES);
+	}
+
+	private static void closeQuietly(FileChannel channel){
+		if(channel == null)
+			return;
+		try{
+			channel.close();
+		} catch(IOException e){
+			// Nothing useful can be done about it
+		}
+	}
+
+	private boolean validHeader(ByteBuffer data, int magic){
+		return data.limit() >= HEADER_BYTES && data.getInt(0) == magic && data.getInt(4) == FORMAT && data.getLong(8) == checksum;
+	}
+
+	private ByteBuffer header(int magic){
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+		header.putInt(magic).putInt(FORMAT).putLong(checksum);
+		header.flip();
+		return header;
+	}
+}
@@ -0,0 +1,118 @@
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*
+ * Immutable list of strings stored as UTF-8 bytes packed back to back
+ *
+ * String i occupies bytes offsets[i] .. offsets[i+1]-1. Both buffers may be on-heap or slices of a
+ * memory-mapped file; only absolute reads are used, so an arena can be shared between threads.
+ */
+final class StringArena {
+	private final ByteBuffer bytes;		// UTF-8 contents of every string
+	private final IntBuffer offsets;	// start of each string in bytes, size+1 entries
+
+	StringArena(ByteBuffer bytes, IntBuffer offsets){
+		this.bytes = bytes;
+		this.offsets = offsets;
+	}
+
+	/*
+	 * Returns the number of strings
+	 */
+	int size(){
+		return offsets.limit() - 1;
+	}
+
+	/*
+	 * Returns string i, decoded
+	 */
+	String get(int i){
+		return WordNetLoader.decode(bytes, offsets.get(i), offsets.get(i + 1));
+	}
+
+	/*
+	 * Returns the offset of the first byte of string i
+	 */
+	int start(int i){
+		return offsets.get(i);
+	}
+
+	/*
+	 * Returns the offset one past the last byte of string i
+	 */
+	int end(int i){
+		return offsets.get(i + 1);
+	}
+
+	/*
+	 * Returns the byte at the given offset
+	 */
+	byte byteAt(int offset){
+		return bytes.get(offset);
+	}
+
+	/*
+	 * Returns the total number of UTF-8 bytes stored
+	 */
+	int byteSize(){
+		return offsets.get(size());
+	}
+
+	/*
+	 * Returns the backing byte buffer
+	 */
+	ByteBuffer bytes(){
+		return bytes;
+	}
+
+	/*
+	 * Returns the backing offsets buffer
+	 */
+	IntBuffer offsets(){
+		return offsets;
+	}
+
+	/*
+	 * Accumulates strings into a heap arena
+	 */
+	static final class Builder {
+		private byte[] bytes = new byte[1024];
+		private int[] offsets = new int[64];
+		private int count;
+
+		/*
+		 * Appends the bytes between start and end of the given buffer as the next string
+		 */
+		Builder add(ByteBuffer source, int start, int end){
+			int length = end - start;
+			ensureCapacity(length);
+			for(int i = 0; i < length; i++){
+				bytes[offsets[count] + i] = source.get(start + i);
+			}
+			offsets[count + 1] = offsets[count] + length;
+			count++;
+			return this;
+		}
+
+		/*
+		 * Appends a string
+		 */
+		Builder add(String s){
+			byte[] encoded = s.getBytes(StandardCharsets.UTF_8);
+			return add(ByteBuffer.wrap(encoded), 0, encoded.length);
+		}
+
+		StringArena build(){
+			return new StringArena(ByteBuffer.wrap(Arrays.copyOf(bytes, offsets[count])), IntBuffer.wrap(Arrays.copyOf(offsets, count + 1)));
+		}
+
+		private void ensureCapacity(int length){
+			if(count + 2 > offsets.length)
+				offsets = Arrays.copyOf(offsets, offsets.length * 2);
+			if(offsets[count] + length > bytes.length)
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, offsets[count] + length));
+		}
+	}
+}
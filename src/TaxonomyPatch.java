@@ -0,0 +1,67 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/*
+ * A batch of synsets and hypernym edges to add to a loaded WordNet with WordNet.update()
+ *
+ * Entries follow the input file formats: a synset is an id and its space-separated nouns, and a
+ * hypernym edge joins two synset ids. New synset ids must continue the existing ones consecutively.
+ * A patch is applied as a whole or not at all.
+ */
+public class TaxonomyPatch {
+	private int[] synsetIds = new int[16];							// ids of the added synsets, in the order given
+	private final ArrayList<String> synsetNouns = new ArrayList<>();	// nouns of each added synset, space-separated
+	private final CompactDigraph.EdgeList edges = new CompactDigraph.EdgeList(0);	// added hypernym edges
+
+	/*
+	 * Adds a synset with the given id and space-separated nouns, as in a line of synsets.txt
+	 */
+	public TaxonomyPatch addSynset(int id, String nouns){
+		if(nouns == null)
+			throw new NullPointerException("Argument given was null");
+		if(nouns.trim().isEmpty())
+			throw new IllegalArgumentException("Synset " + id + " has no nouns");
+
+		if(synsetNouns.size() == synsetIds.length)
+			synsetIds = Arrays.copyOf(synsetIds, synsetIds.length * 2);
+		synsetIds[synsetNouns.size()] = id;
+		synsetNouns.add(nouns);
+		return this;
+	}
+
+	/*
+	 * Adds a hypernym edge from synset to hypernym, as in a line of hypernyms.txt
+	 */
+	public TaxonomyPatch addHypernym(int synset, int hypernym){
+		if(synset < 0 || hypernym < 0)
+			throw new IllegalArgumentException("Synset ids must not be negative");
+		edges.add(synset, hypernym);
+		return this;
+	}
+
+	/*
+	 * Returns the number of synsets added
+	 */
+	public int synsetCount(){
+		return synsetNouns.size();
+	}
+
+	/*
+	 * Returns the number of hypernym edges added
+	 */
+	public int edgeCount(){
+		return edges.count;
+	}
+
+	int synsetId(int i){
+		return synsetIds[i];
+	}
+
+	String synsetNouns(int i){
+		return synsetNouns.get(i);
+	}
+
+	CompactDigraph.EdgeList edges(){
+		return edges;
+	}
+}
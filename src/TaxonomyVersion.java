@@ -0,0 +1,180 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * One immutable version of a WordNet's graph, noun dictionary, ancestor index and SAP
+ *
+ * WordNet publishes versions through a volatile reference. A query reads the reference once and
+ * works on that version throughout, so it never sees a half-applied update. Updates never modify a
+ * published version: apply() builds the next one, sharing nothing mutable with this one.
+ */
+final class TaxonomyVersion {
+	final long number;					// 0 for the version loaded at construction, then one more per update
+	final CompactDigraph graph;
+	final NounDictionary dictionary;
+	final NounList nouns;				// every noun in ascending byte order, as a view over the dictionary
+	final AncestorIndex index;			// null unless the ancestor index is enabled
+	final SAP sap;
+	final BitSet changedNouns;			// nouns whose distances may differ from the previous version; null for version 0
+	final ConcurrentHashMap<Long, CompletableFuture<Long>> inFlight = new ConcurrentHashMap<>();	// searches running on this version, by pair key
+	private GraphValidation validation;	// computed on request unless supplied at construction
+	private Digraph<Boolean> view;		// object graph view, only built on request
+	private volatile ReachabilityIndex reachability;		// is-a labels, only built on request
+	private volatile boolean reachabilityTried;			// whether building the labels has been attempted; they may not fit
+	private volatile NounLookup lookup;			// normalized noun keys, only built on request
+
+	TaxonomyVersion(long number, CompactDigraph graph, NounDictionary dictionary, AncestorIndex index, GraphValidation validation, BitSet changedNouns){
+		this.number = number;
+		this.graph = graph;
+		this.dictionary = dictionary;
+		this.nouns = new NounList(dictionary, 0, dictionary.size());
+		this.index = index;
+		this.validation = validation;
+		this.changedNouns = changedNouns;
+		this.sap = new SAP(graph, index);
+	}
+
+	/*
+	 * Returns the structural validation of this version's graph, computing it the first time it is asked for
+	 */
+	synchronized GraphValidation validation(){
+		if(validation == null)
+			validation = new GraphValidation(graph);
+		return validation;
+	}
+
+	/*
+	 * Returns an object graph view of this version's graph, building it the first time it is asked for
+	 */
+	synchronized Digraph<Boolean> digraph(){
+		if(view == null)
+			view = graph.toDigraph();
+		return view;
+	}
+
+	/*
+	 * Returns the is-a labels of this version's graph, building them the first time they are asked for,
+	 * or null if they would take more than maxBytes
+	 * The labels are written before the volatile marker, so queries that see the marker skip the lock
+	 */
+	ReachabilityIndex reachability(long maxBytes){
+		if(!reachabilityTried){
+			synchronized(this){
+				if(!reachabilityTried){
+					reachability = ReachabilityIndex.build(graph, maxBytes);
+					reachabilityTried = true;
+				}
+			}
+		}
+		return reachability;
+	}
+
+	/*
+	 * Returns the normalized noun lookup of this version, building it the first time it is asked for
+	 * The field is volatile so queries that already see it skip the lock
+	 */
+	NounLookup lookup(){
+		NounLookup built = lookup;
+		if(built == null){
+			synchronized(this){
+				if(lookup == null)
+					lookup = new NounLookup(dictionary);
+				built = lookup;
+			}
+		}
+		return built;
+	}
+
+	/*
+	 * Returns the id of the noun in this version, or -1 if it is null or not found
+	 * With normalize set, a noun not found as given is looked up by its normalized form
+	 */
+	int nounId(String noun, boolean normalize){
+		if(noun == null)
+			return -1;
+
+		int id = dictionary.find(noun);
+		if(id == -1 && normalize)
+			id = lookup().resolveId(noun);
+		return id;
+	}
+
+	/*
+	 * Builds the version that results from applying the patch to this one
+	 *
+	 * This version is a rooted DAG, so any new cycle must run through an added edge and is found by
+	 * searching only the ancestors of the added edges' heads. An acyclic graph is rooted exactly when it
+	 * has one vertex without hypernyms, and only the current root or an added synset can be one.
+	 * The ancestor sets that change are those of the added edges' tails and their descendants; only their
+	 * index rows are rebuilt and only their nouns, with those of the added synsets, are reported changed.
+	 */
+	TaxonomyVersion apply(TaxonomyPatch patch){
+		DepthLabels depths = sap.depths();
+		if(depths == null || depths.root() == -1)
+			throw new IllegalStateException("Only a rooted DAG can be updated");
+
+		int previousV = graph.numVertices();
+		for(int i = 0; i < patch.synsetCount(); i++){
+			if(patch.synsetId(i) != previousV + i)
+				throw new IllegalArgumentException("Synset ids must continue consecutively from " + previousV + ", found " + patch.synsetId(i));
+		}
+		int V = previousV + patch.synsetCount();
+		CompactDigraph.EdgeList edges = patch.edges();
+		CompactDigraph grown = graph.withEdges(V, edges);
+
+		int[] cycle = GraphValidation.cycleThrough(grown, edges);
+		if(cycle.length > 0)
+			throw new IllegalArgumentException("Patch would create the cycle " + Arrays.toString(cycle));
+
+		int roots = (grown.outDegree(depths.root()) == 0) ? 1 : 0;
+		for(int v = previousV; v < V; v++){
+			if(grown.outDegree(v) == 0)
+				roots++;
+		}
+		if(roots != 1)
+			throw new IllegalArgumentException("Patch would leave " + roots + " synsets without hypernyms");
+
+		// Existing synsets below the tail of an added edge gain ancestors
+		BitSet affected = new BitSet(V);
+		int[] stack = new int[16];
+		int top = 0;
+		for(int e = 0; e < edges.count; e++){
+			int tail = edges.from[e];
+			if(tail < previousV && !affected.get(tail)){
+				affected.set(tail);
+				if(top == stack.length)
+					stack = Arrays.copyOf(stack, top * 2);
+				stack[top++] = tail;
+			}
+		}
+		while(top > 0){
+			int v = stack[--top];
+			for(int i = grown.incomingStart(v), end = grown.incomingEnd(v); i < end; i++){
+				int w = grown.source(i);
+				if(w < previousV && !affected.get(w)){
+					affected.set(w);
+					if(top == stack.length)
+						stack = Arrays.copyOf(stack, top * 2);
+					stack[top++] = w;
+				}
+			}
+		}
+
+		NounDictionary grownDictionary = dictionary.withSynsets(patch);
+		BitSet changed = new BitSet(grownDictionary.size());
+		affected.set(previousV, V);
+		for(int s = affected.nextSetBit(0); s >= 0; s = affected.nextSetBit(s + 1)){
+			for(int i = grownDictionary.synsetStart(s), end = grownDictionary.synsetEnd(s); i < end; i++){
+				changed.set(grownDictionary.synsetNounAt(i));
+			}
+		}
+
+		AncestorIndex grownIndex = null;
+		if(index != null)
+			grownIndex = new AncestorIndex(index, grown, affected.stream().toArray());
+
+		return new TaxonomyVersion(number + 1, grown, grownDictionary, grownIndex, null, changed);
+	}
+}
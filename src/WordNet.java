@@ -1,106 +1,308 @@
-import java.io.BufferedReader;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Scanner;
-import java.util.Set;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
 
-import structs.graphs.Vertex;
-
-public class WordNet {
-	private ArrayList<String> setById = new ArrayList<>();
-	private ArrayList<Vertex<Integer>> vertexById = new ArrayList<>();
-	private HashMap<String, ArrayList<Integer>> synonymSets = new HashMap<>(90000);
-	private Digraph<Boolean> wordNet = new Digraph<>();
-	private SAP sap;
-	
-	/* --- Caching previously made queries --- */
-	private HashMap<String, HashMap<String, Integer>> distanceCache = new HashMap<>();
-	private HashMap<String, HashMap<String, Integer>> ancestorCache = new HashMap<>();
+/*
+ * WordNet noun graph built from a synsets file and a hypernyms file
+ *
+ * The graph, nouns, ancestor index and SAP form an immutable version that is replaced as a whole by
+ * update(). Every query reads the current version once and answers from it, and the caches are safe
+ * for concurrent use, so a single instance can serve distance() and sap() from any number of threads,
+ * even while an update is applied, without external locking. The *Async variants run the same queries
+ * on an executor and can be cancelled or given a timeout.
+ */
+public class WordNet implements Closeable {
+	private volatile TaxonomyVersion current;	// graph, nouns, index and SAP currently published to readers
+	private final Object updateLock = new Object();		// serializes update() calls
+	private final ReentrantReadWriteLock cacheLock = new ReentrantReadWriteLock();	// shared by cache puts, held exclusively while update() sweeps and publishes
+	
+	/* --- Caching previously made queries: distance and ancestor packed into one value per noun pair --- */
+	private final PairCache cache;
+	private final SapResultStore store;		// results persisted across restarts; null unless enabled in the options
+	
+	private final Executor executor;		// runs the asynchronous queries unless the caller supplies its own
+	private final long reachabilityBytes;	// largest is-a index to build; 0 to always search
+	private final boolean normalizeNouns;	// let queries fall back to the normalized form of a noun they cannot find
+	
+	/* --- Instrumentation: both null unless enabled in the options, so searches are only timed when someone listens --- */
+	private final WordNetMetrics metrics;
+	private final QueryListener listener;
+	
+	/* --- Input parsing statistics --- */
+	private final long loadBytes;
+	private final long loadNanos;
 
 	/*
 	 * Constructor takes the name of the two input files
 	 */
 	public WordNet(String synsets, String hypernyms){
-		if(synsets == null || hypernyms == null)
+		this(synsets, hypernyms, new WordNetOptions());
+	}
+	
+	/*
+	 * Constructor takes the name of the two input files and the options to build with
+	 */
+	public WordNet(String synsets, String hypernyms, WordNetOptions options){
+		if(synsets == null || hypernyms == null || options == null)
 			throw new NullPointerException();
 		
-		try(Scanner synsetsFile = new Scanner(new BufferedReader(new FileReader(synsets)));
-			Scanner hypernymsFile = new Scanner(new BufferedReader(new FileReader(hypernyms)))){
+		cache = (options.getCache() != null) ? options.getCache() : new LruPairCache(options.getCacheEntries());
+		executor = options.getExecutor();
+		reachabilityBytes = options.getReachabilityIndexBytes();
+		normalizeNouns = options.isNormalizeNounsEnabled();
+		metrics = options.isMetricsEnabled() ? new WordNetMetrics(cache, options.getSlowQueryNanos()) : null;
+		listener = listener(metrics, options.getQueryListeners());
+		
+		try{
+			WordNetLoader loader = WordNetLoader.load(synsets, hypernyms);
+			loadBytes = loader.bytes();
+			loadNanos = loader.nanos();
 			
-			while(synsetsFile.hasNextLine()){
-				// Split line using comma as delimiter to access the id, synset, and gloss by index
-				String[] synset = synsetsFile.nextLine().split(",");
-				
-				// Store the id of the current synset
-				int id = Integer.parseInt(synset[0]);
-				
-				// Store the current synset as a whole
-				String allSynonyms = synset[1];
-				
-				// Split the whole synset to access the individual nouns
-				String[] splitSynonyms = allSynonyms.split(" ");
-				
-				// Populate setByID to access an entire synset by its corresponding id
-				setById.add(allSynonyms);
-				
-				// Maintain a reference to the vertex created in the digraph
-				// Allows constant-time access to a vertex by using its id as the index
-				vertexById.add(wordNet.insertVertex(id));
-
-				// Populate synonymSets to keep track of which synsets a given noun appears in
-				for (String s : splitSynonyms){
-					ArrayList<Integer> list = synonymSets.get(s);
-					
-					if(list != null){
-						list.add(id);
-					} else{
-						synonymSets.put(s, new ArrayList<Integer>());
-						synonymSets.get(s).add(id);						
-					}
-				}	
-			}
+			// Build the graph from the 'is-a' relationships parsed as primitive edge pairs
+			long graphStart = System.nanoTime();
+			CompactDigraph wordNet = loader.edges().build();
+			long graphNanos = System.nanoTime() - graphStart;
 			
-			// Link previously created vertices to signify 'is-a' relationship
-			while(hypernymsFile.hasNextLine()){
-				// Split line and use comma as a delimiter to access the 'from' index and 'to' indices 
-				String[] hypernymSet = hypernymsFile.nextLine().split(",");				
-				int fromId = Integer.parseInt(hypernymSet[0]);
-				// Get reference to vertex corresponding to the synset with id 'fromId'
-				Vertex<Integer> v = (Vertex<Integer>) vertexById.get(fromId);
-				
-				// Iterate through the line, attaching the previous vertex to its hypernyms
-				for(int i = 1, length = hypernymSet.length; i < length; i++){
-					int toId = Integer.parseInt(hypernymSet[i]);
-					Vertex<Integer> w = (Vertex<Integer>) vertexById.get(toId);
-					wordNet.insertEdge(v, w, true);	
-				}
-			}
+			// Check that the graph is a rooted DAG in the background while the nouns are indexed
+			CompletableFuture<GraphValidation> validated = CompletableFuture.supplyAsync(() -> new GraphValidation(wordNet));
+			
+			// Index the nouns, the synsets each one appears in, and the nouns of each synset
+			long dictionaryStart = System.nanoTime();
+			NounDictionary synonymSets = NounDictionary.build(loader, options.isOffHeapDictionaryEnabled());
+			long dictionaryNanos = System.nanoTime() - dictionaryStart;
 			
+			GraphValidation validation = validated.join();
+			if(!validation.isRootedDAG())
+				throw new IllegalArgumentException("Input does not correspond to a rooted DAG: " + validation.problem());
 			
-			// Check if the graph created is a rooted DAG, throw an exception if it's not  
-			if(!wordNet.isRooted())
-				throw new IllegalArgumentException("Input does not correspond to a rooted DAG");	
+			long indexStart = System.nanoTime();
+			AncestorIndex ancestorIndex = options.isAncestorIndexEnabled() ? new AncestorIndex(wordNet) : null;
+			long indexNanos = (ancestorIndex == null) ? 0 : System.nanoTime() - indexStart;
 			
-			sap = new SAP(wordNet); 
-		} catch(FileNotFoundException e1){
-			e1.printStackTrace();
+			current = new TaxonomyVersion(0, wordNet, synonymSets, ancestorIndex, validation, null);
+			store = (options.getResultStore() == null) ? null : openStore(options.getResultStore(), WordNetSnapshot.taxonomyChecksum(wordNet, synonymSets));
+			if(listener != null)
+				listener.loaded(loadNanos, graphNanos, dictionaryNanos, validation.nanos(), indexNanos);
+		} catch(IOException e1){
+			// A half-built instance cannot be shared safely, so fail construction instead of returning one
+			throw new IllegalArgumentException("Input files could not be read", e1);
 		}
 	}
 	
-	/* 
-	 * Returns all WordNet nouns
+	/*
+	 * Constructor takes the sections read from a binary snapshot
+	 */
+	private WordNet(WordNetSnapshot snapshot, WordNetOptions options){
+		cache = (options.getCache() != null) ? options.getCache() : new LruPairCache(options.getCacheEntries());
+		executor = options.getExecutor();
+		reachabilityBytes = options.getReachabilityIndexBytes();
+		normalizeNouns = options.isNormalizeNounsEnabled();
+		metrics = options.isMetricsEnabled() ? new WordNetMetrics(cache, options.getSlowQueryNanos()) : null;
+		listener = listener(metrics, options.getQueryListeners());
+		loadBytes = snapshot.bytes;
+		loadNanos = snapshot.nanos;
+		
+		long indexStart = System.nanoTime();
+		AncestorIndex ancestorIndex = snapshot.ancestorIndex;
+		if(ancestorIndex == null && options.isAncestorIndexEnabled())
+			ancestorIndex = new AncestorIndex(snapshot.graph);
+		long indexNanos = (ancestorIndex == snapshot.ancestorIndex) ? 0 : System.nanoTime() - indexStart;
+		
+		current = new TaxonomyVersion(0, snapshot.graph, snapshot.dictionary, ancestorIndex, null, null);
+		store = (options.getResultStore() == null) ? null : openStore(options.getResultStore(), snapshot.checksum);
+		if(listener != null)
+			listener.loaded(loadNanos, 0, 0, 0, indexNanos);
+	}
+	
+	/*
+	 * Opens a binary snapshot written by writeSnapshot()
 	 */
-	public Iterable<String> nouns(){
-		Set<String> temp_nouns = new HashSet<>();
-		for(String group : setById){
-			for(String noun : group.split(" ")){
-				temp_nouns.add(noun);
+	public static WordNet openSnapshot(String file){
+		return openSnapshot(file, new WordNetOptions());
+	}
+	
+	/*
+	 * Opens a binary snapshot written by writeSnapshot(), with the given options
+	 * An ancestor index stored in the snapshot is always used; otherwise one is built if the options ask for it
+	 */
+	public static WordNet openSnapshot(String file, WordNetOptions options){
+		if(file == null || options == null)
+			throw new NullPointerException();
+		
+		try{
+			return new WordNet(WordNetSnapshot.open(Paths.get(file)), options);
+		} catch(IOException e){
+			throw new IllegalArgumentException("Snapshot could not be read", e);
+		}
+	}
+	
+	/*
+	 * Writes a binary snapshot of the current version of this WordNet, including its ancestor index if one was built
+	 */
+	public void writeSnapshot(String file) throws IOException{
+		if(file == null)
+			throw new NullPointerException();
+		
+		TaxonomyVersion v = current;
+		WordNetSnapshot.write(Paths.get(file), v.graph, v.dictionary, v.index);
+	}
+	
+	/*
+	 * Adds the synsets and hypernym edges of the patch, publishing the result atomically to readers
+	 *
+	 * The patch is checked against the current version first, and rejected with an IllegalArgumentException
+	 * if the graph would no longer be a rooted DAG; the current version is then left in place. On success
+	 * only the cache entries of nouns whose ancestors changed are dropped, so the rest of the cache stays warm.
+	 * Queries already running finish on the version they started with.
+	 */
+	public void update(TaxonomyPatch patch){
+		if(patch == null)
+			throw new NullPointerException();
+		
+		synchronized(updateLock){
+			TaxonomyVersion next = current.apply(patch);
+			
+			// No query can cache a result while the lock is held, and once it is released every put checks the
+			// published version, so an entry computed from the previous graph is either swept here or never cached
+			BitSet changed = next.changedNouns;
+			Lock exclusive = cacheLock.writeLock();
+			exclusive.lock();
+			try{
+				cache.removeIf(key -> changed.get((int) (key >>> 32)) || changed.get((int) key));
+				current = next;
+			} finally{
+				exclusive.unlock();
 			}
 		}
-		return (new ArrayList<String>(temp_nouns));
+	}
+	
+	/*
+	 * Returns the number of updates applied since this WordNet was loaded
+	 */
+	public long version(){
+		return current.number;
+	}
+	
+	/*
+	 * Returns the hypernym graph in compact form
+	 */
+	public CompactDigraph graph(){
+		return current.graph;
+	}
+	
+	/*
+	 * Returns the precomputed ancestor index, or null if it was not enabled
+	 * The index reports its own build time and memory footprint
+	 */
+	public AncestorIndex ancestorIndex(){
+		return current.index;
+	}
+	
+	/*
+	 * Returns the parse throughput of the input files in megabytes per second
+	 */
+	public double loadThroughputMBps(){
+		return (loadBytes / (1024.0 * 1024.0)) / (loadNanos / 1e9);
+	}
+	
+	/*
+	 * Returns the time spent reading and parsing the input files, in nanoseconds
+	 */
+	public long loadNanos(){
+		return loadNanos;
+	}
+	
+	/*
+	 * Returns the structural validation of the hypernym graph: its root, cycles and unreachable vertices
+	 * Text input is validated while loading; a snapshot or update is validated the first time this is asked for
+	 */
+	public GraphValidation validation(){
+		return current.validation();
+	}
+	
+	/*
+	 * Returns an object graph view of the hypernym graph, building it the first time it is asked for
+	 */
+	public Digraph<Boolean> digraph(){
+		return current.digraph();
+	}
+	
+	/* 
+	 * Returns all WordNet nouns, in ascending order of their UTF-8 bytes
+	 * The list is an immutable view over the dictionary: it is not copied, and each noun is decoded when it is read
+	 */
+	public List<String> nouns(){
+		return current.nouns;
+	}
+	
+	/*
+	 * Returns the WordNet nouns that start with the given prefix, as a range of nouns()
+	 */
+	public List<String> nouns(String prefix){
+		if(prefix == null)
+			throw new NullPointerException();
+		
+		TaxonomyVersion v = current;
+		return v.nouns.subList(v.dictionary.prefixStart(prefix), v.dictionary.prefixEnd(prefix));
+	}
+	
+	/*
+	 * Returns the noun itself if it is one, else a noun that differs from it only in case or in spaces and
+	 * underscores, else null
+	 */
+	public String resolve(String word){
+		if(word == null)
+			throw new NullPointerException();
+		
+		return current.lookup().resolve(word);
+	}
+	
+	/*
+	 * Returns up to limit nouns that start with the prefix, ignoring case and the difference between spaces and underscores
+	 */
+	public List<String> complete(String prefix, int limit){
+		if(prefix == null)
+			throw new NullPointerException();
+		
+		return current.lookup().complete(prefix, limit);
+	}
+	
+	/*
+	 * Returns up to limit nouns within maxEdits single-character edits of the word, closest first,
+	 * ignoring case and the difference between spaces and underscores
+	 */
+	public List<String> suggest(String word, int maxEdits, int limit){
+		if(word == null)
+			throw new NullPointerException();
+		
+		return current.lookup().suggest(word, maxEdits, limit);
+	}
+	
+	/*
+	 * Returns the normalized lookup structure of the current version, building it on first use
+	 */
+	public NounLookup nounLookup(){
+		return current.lookup();
+	}
+	
+	/*
+	 * Returns the number of distinct WordNet nouns
+	 */
+	public int nounCount(){
+		return current.dictionary.size();
 	}
 	
 	/*
@@ -110,7 +312,7 @@ public class WordNet {
 		if(word == null)
 			throw new NullPointerException();
 		
-		boolean found = (synonymSets.get(word) != null ? true : false);
+		boolean found = (current.dictionary.find(word) != -1 ? true : false);
 		return found;
 	}
 	
@@ -118,23 +320,8 @@ public class WordNet {
 	 * Distance between nounA and nounB (defined below)
 	 */
 	public int distance(String nounA, String nounB){
-		if((nounA == null || nounB == null) || (!isNoun(nounA)|| !isNoun(nounB))) 
-			throw new IllegalArgumentException("The noun given was either null or does not exist in the wordnet graph");
-		
-		int length = 0;
-		int cached = getCachedDistance(nounA, nounB);
-		
-		if(cached != -1){
-			length = cached;
-		} else {
-			ArrayList<Integer> nounASets = synonymSets.get(nounA);
-			ArrayList<Integer> nounBSets = synonymSets.get(nounB);
-			
-			length = sap.length(nounASets, nounBSets);
-			cacheDistance(nounA, nounB, length);
-		}
-			
-		return length;
+		long path = shortestAncestralPath(current, nounA, nounB);
+		return (int) (path >> 32);
 	}
 	
 	/*
@@ -142,102 +329,540 @@ public class WordNet {
 	 * in a shortest ancestral path
 	 */
 	public String sap(String nounA, String nounB){
-		if((nounA == null || nounB == null) || (!isNoun(nounA)|| !isNoun(nounB))) 
-			throw new IllegalArgumentException("The noun given was either null or does not exist in the wordnet graph");
+		TaxonomyVersion v = current;
+		long path = shortestAncestralPath(v, nounA, nounB);
+		String ancestorSysnet = v.dictionary.synset((int) path);
+		return ancestorSysnet;
+	}
+	
+	/*
+	 * Returns the synset (second field of synsets.txt) with the given id in the current version
+	 */
+	String synset(int id){
+		return current.dictionary.synset(id);
+	}
+	
+	/*
+	 * Distance between nounA and nounB, computed on this WordNet's executor
+	 * Cancelling the returned future abandons the search at its next BFS level
+	 */
+	public CompletableFuture<Integer> distanceAsync(String nounA, String nounB){
+		return distanceAsync(nounA, nounB, executor, 0, TimeUnit.MILLISECONDS);
+	}
+	
+	/*
+	 * Distance between nounA and nounB, computed on the given executor
+	 * The future fails with a TimeoutException and the search is abandoned if it takes longer than the timeout;
+	 * a timeout that is not positive never expires
+	 */
+	public CompletableFuture<Integer> distanceAsync(String nounA, String nounB, Executor executor, long timeout, TimeUnit unit){
+		return AsyncQueries.submit(() -> distance(nounA, nounB), executor, timeout, unit);
+	}
+	
+	/*
+	 * Common ancestor synset of nounA and nounB, computed on this WordNet's executor
+	 * Cancelling the returned future abandons the search at its next BFS level
+	 */
+	public CompletableFuture<String> sapAsync(String nounA, String nounB){
+		return sapAsync(nounA, nounB, executor, 0, TimeUnit.MILLISECONDS);
+	}
+	
+	/*
+	 * Common ancestor synset of nounA and nounB, computed on the given executor
+	 * The future fails with a TimeoutException and the search is abandoned if it takes longer than the timeout;
+	 * a timeout that is not positive never expires
+	 */
+	public CompletableFuture<String> sapAsync(String nounA, String nounB, Executor executor, long timeout, TimeUnit unit){
+		return AsyncQueries.submit(() -> sap(nounA, nounB), executor, timeout, unit);
+	}
+	
+	/*
+	 * Distances between nounsA[i] and nounsB[i] for every i, computed as one batch
+	 */
+	public int[] distances(String[] nounsA, String[] nounsB){
+		long[] paths = shortestAncestralPaths(current, nounsA, nounsB);
+		int[] distances = new int[paths.length];
+		for(int i = 0; i < paths.length; i++){
+			distances[i] = (int) (paths[i] >> 32);
+		}
+		return distances;
+	}
+	
+	/*
+	 * Common ancestor synsets of nounsA[i] and nounsB[i] for every i, computed as one batch
+	 */
+	public String[] saps(String[] nounsA, String[] nounsB){
+		TaxonomyVersion v = current;
+		long[] paths = shortestAncestralPaths(v, nounsA, nounsB);
+		String[] ancestors = new String[paths.length];
+		for(int i = 0; i < paths.length; i++){
+			ancestors[i] = v.dictionary.synset((int) paths[i]);
+		}
+		return ancestors;
+	}
+	
+	/*
+	 * Similarity of nounA and nounB under the given measure
+	 * The score comes from the same cached shortest ancestral path as distance() and sap(), plus a depth lookup
+	 */
+	public double similarity(String nounA, String nounB, Measure measure){
+		if(measure == null)
+			throw new NullPointerException();
 		
-		int ancestor = 0;
-		int cached = getCachedAncestor(nounA, nounB);
+		TaxonomyVersion v = current;
+		return score(v, shortestAncestralPath(v, nounA, nounB), measure);
+	}
+	
+	/*
+	 * Similarities of nounsA[i] and nounsB[i] for every i under the given measure, computed as one batch
+	 */
+	public double[] similarities(String[] nounsA, String[] nounsB, Measure measure){
+		if(measure == null)
+			throw new NullPointerException();
 		
-		if(cached != -1){
-			ancestor = cached;
-		} else{
-			ArrayList<Integer> nounASets = synonymSets.get(nounA);
-			ArrayList<Integer> nounBSets = synonymSets.get(nounB);
-			ancestor = sap.ancestor(nounASets, nounBSets);
-			cacheAncestor(nounA, nounB, ancestor);
+		TaxonomyVersion v = current;
+		long[] paths = shortestAncestralPaths(v, nounsA, nounsB);
+		double[] scores = new double[paths.length];
+		for(int i = 0; i < paths.length; i++){
+			scores[i] = score(v, paths[i], measure);
 		}
-
-		String ancestorSysnet = setById.get(ancestor);
-		return ancestorSysnet;
+		return scores;
 	}
 	
-	/* 
-	 * Retrieves the cached distance for two nouns 
+	/*
+	 * Is some meaning of the noun a kind of some meaning of the hypernym? Every noun is a kind of itself
 	 */
-	private int getCachedDistance(String nounA, String nounB){
-		if(distanceCache.get(nounA) == null || (distanceCache.get(nounA).get(nounB) == null)){
-			return -1;
+	public boolean isA(String noun, String hypernym){
+		TaxonomyVersion v = current;
+		int id = nounId(v, noun);
+		int hypernymId = nounId(v, hypernym);
+		if(id == -1 || hypernymId == -1)
+			throw new IllegalArgumentException("The noun given was either null or does not exist in the wordnet graph");
+		
+		for(int ancestor : v.dictionary.synsets(hypernymId)){
+			if(isA(v, v.dictionary.synsets(id), ancestor))
+				return true;
 		}
-		int ancestor = distanceCache.get(nounA).get(nounB);
+		return false;
+	}
+	
+	/*
+	 * Is some meaning of the noun the given synset, or a kind of it?
+	 */
+	public boolean isA(String noun, int ancestorSynset){
+		TaxonomyVersion v = current;
+		int id = nounId(v, noun);
+		if(id == -1)
+			throw new IllegalArgumentException("The noun given was either null or does not exist in the wordnet graph");
 		
-		return ancestor;
+		return isA(v, v.dictionary.synsets(id), ancestorSynset);
+	}
+	
+	/*
+	 * Is the synset the given ancestor synset, or a kind of it?
+	 */
+	public boolean isA(int synset, int ancestorSynset){
+		return isA(current, new int[]{ synset }, ancestorSynset);
+	}
+	
+	/*
+	 * Returns the is-a index of the current version, building it on first use,
+	 * or null if it is disabled or would not fit its byte bound
+	 */
+	public ReachabilityIndex reachabilityIndex(){
+		return (reachabilityBytes == 0) ? null : current.reachability(reachabilityBytes);
 	}
 	
 	/*
-	 * Caches a given distance between two nouns
+	 * Returns the topological order and depth labels of the hypernym graph
 	 */
-	private void cacheDistance(String nounA, String nounB, int dist){
-		HashMap<String, Integer> mapA;
-		HashMap<String, Integer> mapB;
+	public DepthLabels depths(){
+		return current.sap.depths();
+	}
+	
+	/*
+	 * The k nouns closest to the given noun by SAP distance, nearest first, not counting the noun itself
+	 * Synsets are visited outwards from the noun's own, so only the neighbourhood holding the answer is searched
+	 */
+	public String[] nearest(String noun, int k){
+		TaxonomyVersion v = current;
+		NounDictionary synonymSets = v.dictionary;
+		int id = nounId(v, noun);
+		if(id == -1)
+			throw new IllegalArgumentException("The noun given was either null or does not exist in the wordnet graph");
+		if(k < 0)
+			throw new IllegalArgumentException("k must not be negative");
+		
+		int limit = Math.min(k, synonymSets.size() - 1);
+		int[] found = new int[limit];
+		BitSet seen = new BitSet(synonymSets.size());
+		seen.set(id);
+		int[] count = new int[1];
+		
+		if(limit > 0){
+			v.sap.visitByDistance(synonymSets.synsets(id), (synset, distance) -> {
+				for(int i = synonymSets.synsetStart(synset), end = synonymSets.synsetEnd(synset); i < end; i++){
+					int other = synonymSets.synsetNounAt(i);
+					if(!seen.get(other)){
+						seen.set(other);
+						found[count[0]++] = other;
+						if(count[0] == limit)
+							return false;
+					}
+				}
+				return true;
+			});
+		}
 		
-		if(distanceCache.get(nounA) == null){
-			distanceCache.put(nounA, new HashMap<String, Integer>());
-			mapA = distanceCache.get(nounA);
-		} else{
-			mapA = distanceCache.get(nounA);
+		String[] nearest = new String[count[0]];
+		for(int i = 0; i < nearest.length; i++){
+			nearest[i] = synonymSets.noun(found[i]);
 		}
+		return nearest;
+	}
+	
+	/*
+	 * Returns a matrix streaming distances from any source nouns to the given target nouns
+	 * Distances are computed from ancestor tables of the current version and bypass the pair cache
+	 */
+	public DistanceMatrix distanceMatrix(String[] targets){
+		if(targets == null)
+			throw new NullPointerException();
+		
+		TaxonomyVersion v = current;
+		return new DistanceMatrix(v, ancestorTables(v, targets), normalizeNouns);
+	}
+	
+	/*
+	 * Returns the ancestors of every synset of each given noun with their distances, for reuse across many queries
+	 * All tables come from the same version, so distances between them are consistent
+	 */
+	SAP.AncestorTable[] ancestorTables(String[] nouns){
+		return ancestorTables(current, nouns);
+	}
+	
+	/*
+	 * Builds the ancestor tables of the given nouns from one version, in parallel
+	 */
+	private SAP.AncestorTable[] ancestorTables(TaxonomyVersion v, String[] nouns){
+		SAP.AncestorTable[] tables = new SAP.AncestorTable[nouns.length];
+		Thread caller = Thread.currentThread();
+		IntStream.range(0, nouns.length).parallel().forEach(i -> {
+			AsyncQueries.checkCancelled(caller);
+			int id = nounId(v, nouns[i]);
+			if(id == -1)
+				throw new IllegalArgumentException("The noun given was either null or does not exist in the wordnet graph");
+			tables[i] = v.sap.ancestorTable(v.dictionary.synsets(id));
+		});
+		return tables;
+	}
+	
+	/*
+	 * Returns the heap or off-heap bytes held by the noun dictionary
+	 */
+	public long dictionaryBytes(){
+		return current.dictionary.memoryBytes();
+	}
+	
+	/*
+	 * Returns the cache holding previously computed noun pairs, with its hit/miss/eviction counters
+	 */
+	public PairCache cache(){
+		return cache;
+	}
+	
+	/*
+	 * Writes out pending results and releases the persistent result store, if one is open
+	 * Queries keep working afterwards, but no longer read or record persisted results
+	 */
+	@Override
+	public void close(){
+		if(store != null)
+			store.close();
+	}
+	
+	/*
+	 * Returns the number of results held by the persistent result store, or -1 if there is none
+	 */
+	public long storedResults(){
+		return (store == null) ? -1 : store.size();
+	}
+	
+	/*
+	 * Returns the search, cache and load metrics, or null if they were not enabled in the options
+	 */
+	public WordNetMetrics metrics(){
+		return metrics;
+	}
+	
+	/*
+	 * Returns the executor asynchronous queries run on by default
+	 */
+	Executor executor(){
+		return executor;
+	}
+	
+	/* 
+	 * Returns the shortest ancestral path between two nouns, distance in the high 32 bits and ancestor in the low 32 bits
+	 * A pair is looked up in the cache first, so distance() and sap() on the same pair share one search
+	 *
+	 * Misses are single-flight: the first caller to miss on a pair registers a future for it and searches,
+	 * and callers that miss on the same pair meanwhile wait for that future instead of searching again.
+	 * Flights belong to a version, so a caller never waits on a search over an older graph. Waiting can be
+	 * interrupted, and a caller whose leader was cancelled searches again rather than failing with it.
+	 */
+	private long shortestAncestralPath(TaxonomyVersion v, String nounA, String nounB){
+		NounDictionary synonymSets = v.dictionary;
+		int idA = nounId(v, nounA);
+		int idB = nounId(v, nounB);
+		if(idA == -1 || idB == -1)
+			throw new IllegalArgumentException("The noun given was either null or does not exist in the wordnet graph");
 		
-		if(distanceCache.get(nounB) == null){
-			distanceCache.put(nounB, new HashMap<String, Integer>());
-			mapB = distanceCache.get(nounB);
-		} else{
-			mapB = distanceCache.get(nounB);
+		long key = PairCache.key(idA, idB);
+		while(true){
+			long path = cache.get(key);
+			if(path != PairCache.NOT_FOUND)
+				return path;
+			
+			CompletableFuture<Long> flight = new CompletableFuture<>();
+			CompletableFuture<Long> leader = v.inFlight.putIfAbsent(key, flight);
+			if(leader == null)
+				return search(v, key, nounA, nounB, synonymSets.synsets(idA), synonymSets.synsets(idB), flight);
+			
+			try{
+				return leader.get();
+			} catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+				throw new CancellationException("Query was cancelled");
+			} catch(CancellationException e){
+				// The leading query was cancelled, which says nothing about this one; look the pair up again
+			} catch(ExecutionException e){
+				throw (e.getCause() instanceof RuntimeException) ? (RuntimeException) e.getCause() : new CompletionException(e.getCause());
+			}
+		}
+	}
+	
+	/*
+	 * Searches for one pair as the leader of its flight, caching the result and handing it to any waiting callers
+	 */
+	private long search(TaxonomyVersion v, long key, String nounA, String nounB, int[] synsetsA, int[] synsetsB, CompletableFuture<Long> flight){
+		try{
+			long path = storedPath(v, key);
+			if(path == PairCache.NOT_FOUND){
+				long startTime = (listener == null) ? 0 : System.nanoTime();
+				long visitedBefore = (listener == null) ? 0 : v.sap.visitedCount();
+				SAP.CommonAncestor ancestor = v.sap.findCommonAncestor(synsetsA, synsetsB);
+				if(listener != null)
+					listener.searched(nounA, nounB, synsetsA.length * synsetsB.length, v.sap.visitedCount() - visitedBefore, System.nanoTime() - startTime);
+				path = ((long) ancestor.getDistance() << 32) | (ancestor.getAncestor() & 0xffffffffL);
+				persist(v, key, path);
+			}
+			cachePath(v, key, path);
+			flight.complete(path);
+			return path;
+		} catch(RuntimeException e){
+			flight.completeExceptionally(e);
+			throw e;
+		} finally{
+			v.inFlight.remove(key, flight);
+		}
+	}
+	
+	/*
+	 * Returns the id of the noun in the given version, or -1 if it is null or not found
+	 * With normalization enabled, a noun not found as given is looked up by its normalized form
+	 */
+	private int nounId(TaxonomyVersion v, String noun){
+		return v.nounId(noun, normalizeNouns);
+	}
+	
+	/*
+	 * Caches a result computed on the given version, unless a newer version has been published since
+	 * The check and the put happen under the shared cache lock, so update() cannot sweep and publish in between
+	 */
+	private void cachePath(TaxonomyVersion v, long key, long path){
+		Lock shared = cacheLock.readLock();
+		shared.lock();
+		try{
+			if(current == v)
+				cache.put(key, path);
+		} finally{
+			shared.unlock();
 		}
+	}
+	
+	/*
+	 * Returns the persisted result for a pair, or NOT_FOUND
+	 * Only results of the version loaded from the input are persisted, since the store is keyed on the input's checksum
+	 */
+	private long storedPath(TaxonomyVersion v, long key){
+		return (store == null || v.number != 0) ? PairCache.NOT_FOUND : store.get(key);
+	}
+	
+	/*
+	 * Queues a computed result for the persistent store, if it belongs to the version loaded from the input
+	 */
+	private void persist(TaxonomyVersion v, long key, long path){
+		if(store != null && v.number == 0)
+			store.add(key, path);
+	}
+	
+	/*
+	 * Checks whether any of the synsets is the ancestor or a kind of it: an interval lookup per synset when
+	 * the is-a index fits its bound, otherwise a pruned search up the graph
+	 */
+	private boolean isA(TaxonomyVersion v, int[] synsets, int ancestor){
+		int V = v.graph.numVertices();
+		if(ancestor < 0 || ancestor >= V)
+			throw new IllegalArgumentException("Synset id " + ancestor + " is out of range");
+		
+		ReachabilityIndex reachability = (reachabilityBytes == 0) ? null : v.reachability(reachabilityBytes);
+		if(reachability == null)
+			return v.sap.isAncestor(synsets, ancestor);
 		
-		mapA.put(nounB, dist);
-		mapB.put(nounA, dist);
+		for(int s : synsets){
+			if(s < 0 || s >= V)
+				throw new IllegalArgumentException("Synset id " + s + " is out of range");
+			if(reachability.reaches(s, ancestor))
+				return true;
+		}
+		return false;
 	}
 	
 	/*
-	 * Retrieves a cached ancestor for two nouns 
+	 * Scores a packed shortest ancestral path, taking the ancestor's depth as its longest path to the root
 	 */
-	private int getCachedAncestor(String nounA, String nounB){
-		if(ancestorCache.get(nounA) == null){
-			return -1;
+	private double score(TaxonomyVersion v, long path, Measure measure){
+		DepthLabels depths = v.sap.depths();
+		int ancestorDepth = depths.maxDepth((int) path) + 1;
+		return measure.score((int) (path >> 32), ancestorDepth, depths.height() + 1);
+	}
+	
+	/*
+	 * Opens the persistent result store in the given directory for the taxonomy with the given checksum
+	 * Both constructors key it on WordNetSnapshot.taxonomyChecksum(), so text and snapshot loads share their results
+	 */
+	private static SapResultStore openStore(String directory, long checksum){
+		try{
+			return new SapResultStore(Paths.get(directory), checksum);
+		} catch(IOException e){
+			throw new IllegalArgumentException("Result store " + directory + " could not be opened", e);
 		}
+	}
+	
+	/*
+	 * Combines the metrics and the configured listeners into one listener, or returns null if there are none
+	 */
+	private static QueryListener listener(WordNetMetrics metrics, List<QueryListener> configured){
+		List<QueryListener> all = new ArrayList<>(configured);
+		if(metrics != null)
+			all.add(0, metrics);
+		if(all.isEmpty())
+			return null;
+		if(all.size() == 1)
+			return all.get(0);
 		
-		int ancestor = ancestorCache.get(nounA).get(nounB);
-		return ancestor;
+		QueryListener[] listeners = all.toArray(new QueryListener[0]);
+		return new QueryListener(){
+			@Override
+			public void searched(String nounA, String nounB, int fanOut, long visited, long nanos){
+				for(QueryListener l : listeners){
+					l.searched(nounA, nounB, fanOut, visited, nanos);
+				}
+			}
+			
+			@Override
+			public void loaded(long parseNanos, long graphNanos, long dictionaryNanos, long validationNanos, long indexNanos){
+				for(QueryListener l : listeners){
+					l.loaded(parseNanos, graphNanos, dictionaryNanos, validationNanos, indexNanos);
+				}
+			}
+		};
 	}
 	
 	/*
-	 * Caches a given ancestor for a given pair of nouns
+	 * Returns the shortest ancestral path of every pair, packed as in shortestAncestralPath()
+	 *
+	 * Pairs are deduplicated on their cache key and looked up in the cache. The misses are sorted by key,
+	 * which groups every pair sharing its lower noun id; each group builds that noun's ancestor table once
+	 * and searches upwards only from its partners. Groups are spread over the fork-join pool.
 	 */
-	private void cacheAncestor(String nounA, String nounB, int id){
-		HashMap<String, Integer> mapA;
-		HashMap<String, Integer> mapB;
+	private long[] shortestAncestralPaths(TaxonomyVersion v, String[] nounsA, String[] nounsB){
+		if(nounsA == null || nounsB == null)
+			throw new NullPointerException();
+		
+		NounDictionary synonymSets = v.dictionary;
+		if(nounsA.length != nounsB.length)
+			throw new IllegalArgumentException("Both noun arrays must have the same length");
 		
-		if(ancestorCache.get(nounA) == null){
-			ancestorCache.put(nounA, new HashMap<String, Integer>());
-			mapA = ancestorCache.get(nounA);
-		} else{
-			mapA = ancestorCache.get(nounA);
+		int n = nounsA.length;
+		long[] keys = new long[n];
+		for(int i = 0; i < n; i++){
+			int idA = nounId(v, nounsA[i]);
+			int idB = nounId(v, nounsB[i]);
+			if(idA == -1 || idB == -1)
+				throw new IllegalArgumentException("The noun given at index " + i + " was either null or does not exist in the wordnet graph");
+			keys[i] = PairCache.key(idA, idB);
 		}
 		
-		if(ancestorCache.get(nounB) == null){
-			ancestorCache.put(nounB, new HashMap<String, Integer>());
-			mapB = ancestorCache.get(nounB);
-		} else{
-			mapB = ancestorCache.get(nounB);
+		// Deduplicate, then answer what the cache already holds
+		long[] unique = Arrays.stream(keys).sorted().distinct().toArray();
+		long[] uniquePaths = new long[unique.length];
+		int missCount = 0;
+		int[] misses = new int[unique.length];
+		for(int u = 0; u < unique.length; u++){
+			uniquePaths[u] = cache.get(unique[u]);
+			if(uniquePaths[u] == PairCache.NOT_FOUND)
+				misses[missCount++] = u;
 		}
 		
-		mapA.put(nounB, id);
-		mapB.put(nounA, id);
+		// Misses are still in key order, so pairs sharing their lower noun id are contiguous
+		int[] groupStart = new int[missCount + 1];
+		int groupCount = 0;
+		for(int m = 0; m < missCount; m++){
+			if(m == 0 || (unique[misses[m]] >>> 32) != (unique[misses[m - 1]] >>> 32))
+				groupStart[groupCount++] = m;
+		}
+		groupStart[groupCount] = missCount;
+		
+		int[] missed = misses;
+		IntStream.range(0, groupCount).parallel().forEach(g -> {
+			int source = (int) (unique[missed[groupStart[g]]] >>> 32);
+			SAP.AncestorTable table = v.sap.ancestorTable(synonymSets.synsets(source));
+			
+			for(int m = groupStart[g]; m < groupStart[g + 1]; m++){
+				int u = missed[m];
+				int partner = (int) unique[u];
+				uniquePaths[u] = storedPath(v, unique[u]);
+				if(uniquePaths[u] != PairCache.NOT_FOUND){
+					cachePath(v, unique[u], uniquePaths[u]);
+					continue;
+				}
+				
+				long startTime = (listener == null) ? 0 : System.nanoTime();
+				long visitedBefore = (listener == null) ? 0 : v.sap.visitedCount();
+				SAP.CommonAncestor ancestor = v.sap.findCommonAncestor(table, synonymSets.synsets(partner));
+				if(listener != null){
+					listener.searched(synonymSets.noun(source), synonymSets.noun(partner), synonymSets.synsets(source).length * synonymSets.synsets(partner).length,
+							v.sap.visitedCount() - visitedBefore, System.nanoTime() - startTime);
+				}
+				uniquePaths[u] = ((long) ancestor.getDistance() << 32) | (ancestor.getAncestor() & 0xffffffffL);
+				persist(v, unique[u], uniquePaths[u]);
+				cachePath(v, unique[u], uniquePaths[u]);
+			}
+		});
+		
+		long[] paths = new long[n];
+		for(int i = 0; i < n; i++){
+			paths[i] = uniquePaths[Arrays.binarySearch(unique, keys[i])];
+		}
+		return paths;
 	}
 	
 	// Unit testing
 	public static void main(String[] args) {
 		WordNet wn = new WordNet("synsets.txt", "hypernyms.txt");	
+		System.out.printf("Parsed input in %d ms (%.1f MB/s)%n", wn.loadNanos() / 1000000, wn.loadThroughputMBps());
 		
 		long totalTime = 0;
 		int iterationCount = 1000;
@@ -0,0 +1,133 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/*
+ * Load generator for WordNetServer: opens several connections, keeps a fixed number of requests in
+ * flight on each, and reports throughput and latency percentiles
+ *
+ * Requests are DISTANCE queries on noun pairs drawn with a fixed seed from a synsets file. Latency is
+ * measured per request from the moment it is written to the moment its response line is read.
+ */
+public class WordNetLoadGenerator {
+
+	/*
+	 * Usage: WordNetLoadGenerator synsets [port] [connections] [requests per connection] [pipeline depth]
+	 */
+	public static void main(String[] args) throws Exception{
+		String synsets = args.length > 0 ? args[0] : "synsets.txt";
+		int port = args.length > 1 ? Integer.parseInt(args[1]) : 7878;
+		int connectionCount = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		int requestCount = args.length > 3 ? Integer.parseInt(args[3]) : 100000;
+		int depth = args.length > 4 ? Integer.parseInt(args[4]) : 16;
+
+		String[] nouns = readNouns(synsets);
+		ExecutorService pool = Executors.newFixedThreadPool(connectionCount);
+		List<Future<long[]>> running = new ArrayList<>();
+		long startTime = System.nanoTime();
+
+		for(int c = 0; c < connectionCount; c++){
+			long seed = c;
+			running.add(pool.submit(() -> run(port, nouns, new Random(seed), requestCount, depth)));
+		}
+		long[] latencies = new long[connectionCount * requestCount];
+		int filled = 0;
+		for(Future<long[]> f : running){
+			long[] part = f.get();
+			System.arraycopy(part, 0, latencies, filled, part.length);
+			filled += part.length;
+		}
+		long endTime = System.nanoTime();
+		pool.shutdown();
+
+		Arrays.sort(latencies);
+		System.out.println("Connections: " + connectionCount + ", requests: " + latencies.length + ", pipeline depth: " + depth);
+		System.out.println("Throughput (requests/s): " + (latencies.length * 1000000000L / (endTime - startTime)));
+		System.out.printf("Latency (us): p50 %d, p90 %d, p99 %d, p99.9 %d, max %d%n",
+				percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+				percentile(latencies, 0.999), latencies[latencies.length - 1] / 1000);
+	}
+
+	/*
+	 * Sends requestCount requests on one connection with up to depth of them outstanding; returns each latency in nanoseconds
+	 */
+	private static long[] run(int port, String[] nouns, Random random, int requestCount, int depth) throws IOException{
+		long[] latencies = new long[requestCount];
+		long[] sentAt = new long[depth];
+
+		try(Socket socket = new Socket("127.0.0.1", port);
+				BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+				Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))){
+			socket.setTcpNoDelay(true);
+
+			int sent = 0;
+			for(; sent < Math.min(depth, requestCount); sent++){
+				sentAt[sent % depth] = System.nanoTime();
+				send(out, nouns, random);
+			}
+			out.flush();
+
+			// Responses come back in request order, so slot i % depth holds the send time of response i
+			for(int received = 0; received < requestCount; received++){
+				String response = in.readLine();
+				if(response == null)
+					throw new IOException("Server closed the connection after " + received + " responses");
+				if(!response.startsWith("OK"))
+					throw new IOException("Server answered " + response);
+				latencies[received] = System.nanoTime() - sentAt[received % depth];
+
+				if(sent < requestCount){
+					sentAt[sent % depth] = System.nanoTime();
+					send(out, nouns, random);
+					out.flush();
+					sent++;
+				}
+			}
+			out.write("QUIT\n");
+		}
+		return latencies;
+	}
+
+	private static void send(Writer out, String[] nouns, Random random) throws IOException{
+		out.write("DISTANCE ");
+		out.write(nouns[random.nextInt(nouns.length)]);
+		out.write(' ');
+		out.write(nouns[random.nextInt(nouns.length)]);
+		out.write('\n');
+	}
+
+	/*
+	 * Reads the distinct nouns of a synsets file
+	 */
+	private static String[] readNouns(String synsets) throws IOException{
+		try(Stream<String> lines = Files.lines(Paths.get(synsets), StandardCharsets.UTF_8)){
+			return lines.flatMap(line -> Arrays.stream(line.split(",")[1].split(" ")))
+					.filter(noun -> !noun.isEmpty())
+					.distinct()
+					.toArray(String[]::new);
+		}
+	}
+
+	/*
+	 * Returns the given percentile of sorted nanosecond latencies, in microseconds
+	 */
+	private static long percentile(long[] sorted, double p){
+		int i = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+		return sorted[Math.max(0, i)] / 1000;
+	}
+}
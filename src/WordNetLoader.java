@@ -0,0 +1,292 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+/*
+ * Reads synsets.txt and hypernyms.txt through memory-mapped buffers
+ *
+ * Both files are scanned byte by byte without Scanner, String.split or Integer.parseInt. The synsets
+ * file is tokenized into the byte ranges of the nouns of each synset, so no String is built until a
+ * caller asks for one. The hypernyms file is split into newline-aligned chunks that are parsed
+ * in parallel into primitive edge arrays while the synsets file is scanned on the calling thread.
+ */
+final class WordNetLoader {
+	private static final int CHUNK_BYTES = 1 << 20;		// target size of one parallel hypernyms chunk
+
+	private final ByteBuffer synsetData;	// contents of the synsets file
+	private int synsetCount;				// number of synsets read
+	private int tokenCount;					// number of noun occurrences read
+	private int[] tokenStart;				// start of each noun occurrence in synsetData
+	private int[] tokenEnd;					// end of each noun occurrence, exclusive
+	private int[] tokenSynset;				// synset each noun occurrence belongs to
+	private CompactDigraph.EdgeList edges;	// hypernym edges, from synset to hypernym
+	private final long bytes;				// total size of both files
+	private long nanos;						// wall-clock time spent parsing both files
+
+	private WordNetLoader(ByteBuffer synsetData, long bytes){
+		this.synsetData = synsetData;
+		this.bytes = bytes;
+	}
+
+	/*
+	 * Maps and parses both files
+	 */
+	static WordNetLoader load(String synsets, String hypernyms) throws IOException{
+		long startTime = System.nanoTime();
+		ByteBuffer synsetData = map(Paths.get(synsets));
+		ByteBuffer hypernymData = map(Paths.get(hypernyms));
+
+		WordNetLoader loader = new WordNetLoader(synsetData, synsetData.limit() + (long) hypernymData.limit());
+		CompletableFuture<CompactDigraph.EdgeList> parsedEdges = CompletableFuture.supplyAsync(() -> parseHypernyms(hypernymData));
+		loader.parseSynsets();
+		loader.edges = parsedEdges.join();
+		loader.edges.V = loader.synsetCount;
+		loader.nanos = System.nanoTime() - startTime;
+		return loader;
+	}
+
+	/*
+	 * Returns the number of synsets read
+	 */
+	int synsetCount(){
+		return synsetCount;
+	}
+
+	/*
+	 * Returns the number of noun occurrences read, counting a noun once per synset it appears in
+	 */
+	int tokenCount(){
+		return tokenCount;
+	}
+
+	/*
+	 * Returns the offset of the first byte of the given noun occurrence in synsetData()
+	 */
+	int tokenStart(int t){
+		return tokenStart[t];
+	}
+
+	/*
+	 * Returns the offset one past the last byte of the given noun occurrence
+	 */
+	int tokenEnd(int t){
+		return tokenEnd[t];
+	}
+
+	/*
+	 * Returns the mapped contents of the synsets file
+	 */
+	ByteBuffer synsetData(){
+		return synsetData;
+	}
+
+	/*
+	 * Returns the synset the given noun occurrence belongs to
+	 */
+	int tokenSynset(int t){
+		return tokenSynset[t];
+	}
+
+	/*
+	 * Returns the hypernym edges read
+	 */
+	CompactDigraph.EdgeList edges(){
+		return edges;
+	}
+
+	/*
+	 * Returns the combined size of both files, in bytes
+	 */
+	long bytes(){
+		return bytes;
+	}
+
+	/*
+	 * Returns the wall-clock time spent mapping and parsing both files
+	 */
+	long nanos(){
+		return nanos;
+	}
+
+	/*
+	 * Returns the parse throughput in megabytes per second
+	 */
+	double throughputMBps(){
+		return (bytes / (1024.0 * 1024.0)) / (nanos / 1e9);
+	}
+
+	/*
+	 * Scans lines of the form "id,noun noun ...,gloss", recording the byte ranges of the noun field and of each noun
+	 */
+	private void parseSynsets(){
+		ByteBuffer data = synsetData;
+		int limit = data.limit();
+		int estimate = Math.max(16, limit / 64);
+		tokenStart = new int[estimate];
+		tokenEnd = new int[estimate];
+		tokenSynset = new int[estimate];
+
+		int pos = 0;
+		while(pos < limit){
+			byte b = data.get(pos);
+			if(b == '\n' || b == '\r'){
+				pos++;
+				continue;
+			}
+
+			// Synset id; ids double as vertex indices so they must be consecutive
+			int id = 0;
+			int digitsStart = pos;
+			while(pos < limit && (b = data.get(pos)) >= '0' && b <= '9'){
+				id = id * 10 + (b - '0');
+				pos++;
+			}
+			if(pos == digitsStart || pos == limit || data.get(pos) != ',')
+				throw malformed("synsets", pos);
+			if(id != synsetCount)
+				throw new IllegalArgumentException("Synset ids must be consecutive starting at 0, found " + id);
+			pos++;
+
+			// Noun field, split on spaces
+			int nounStart = pos;
+			while(pos < limit){
+				b = data.get(pos);
+				if(b == ',' || b == '\n' || b == '\r')
+					break;
+				if(b == ' '){
+					addToken(nounStart, pos, id);
+					nounStart = pos + 1;
+				}
+				pos++;
+			}
+			addToken(nounStart, pos, id);
+			synsetCount++;
+
+			// Skip the gloss, which may itself contain commas
+			while(pos < limit && data.get(pos) != '\n'){
+				pos++;
+			}
+		}
+	}
+
+	/*
+	 * Records one noun occurrence, ignoring the empty ones left by repeated spaces
+	 */
+	private void addToken(int start, int end, int synset){
+		if(start == end)
+			return;
+		if(tokenCount == tokenStart.length){
+			tokenStart = Arrays.copyOf(tokenStart, tokenCount * 2);
+			tokenEnd = Arrays.copyOf(tokenEnd, tokenCount * 2);
+			tokenSynset = Arrays.copyOf(tokenSynset, tokenCount * 2);
+		}
+		tokenStart[tokenCount] = start;
+		tokenEnd[tokenCount] = end;
+		tokenSynset[tokenCount] = synset;
+		tokenCount++;
+	}
+
+	/*
+	 * Splits the hypernyms file into newline-aligned chunks, parses them in parallel and concatenates the edges in file order
+	 */
+	private static CompactDigraph.EdgeList parseHypernyms(ByteBuffer data){
+		int limit = data.limit();
+		int chunks = Math.max(1, limit / CHUNK_BYTES);
+		int[] bounds = new int[chunks + 1];
+		bounds[chunks] = limit;
+		for(int c = 1; c < chunks; c++){
+			int pos = Math.max(bounds[c - 1], c * (limit / chunks));
+			while(pos < limit && data.get(pos - 1) != '\n'){
+				pos++;
+			}
+			bounds[c] = pos;
+		}
+
+		CompactDigraph.EdgeList[] parts = new CompactDigraph.EdgeList[chunks];
+		IntStream.range(0, chunks).parallel().forEach(c -> parts[c] = parseHypernymChunk(data, bounds[c], bounds[c + 1]));
+
+		int total = 0;
+		for(CompactDigraph.EdgeList part : parts){
+			total += part.count;
+		}
+		CompactDigraph.EdgeList edges = new CompactDigraph.EdgeList(0);
+		edges.from = new int[total];
+		edges.to = new int[total];
+		for(CompactDigraph.EdgeList part : parts){
+			System.arraycopy(part.from, 0, edges.from, edges.count, part.count);
+			System.arraycopy(part.to, 0, edges.to, edges.count, part.count);
+			edges.count += part.count;
+		}
+		return edges;
+	}
+
+	/*
+	 * Parses lines of the form "id,hypernym,hypernym,..." between the given offsets
+	 */
+	private static CompactDigraph.EdgeList parseHypernymChunk(ByteBuffer data, int pos, int end){
+		CompactDigraph.EdgeList edges = new CompactDigraph.EdgeList((end - pos) / 8);
+		int fromId = -1;
+		int value = 0;
+		boolean inNumber = false;
+
+		for(; pos <= end; pos++){
+			byte b = (pos < end) ? data.get(pos) : (byte) '\n';
+			if(b >= '0' && b <= '9'){
+				value = value * 10 + (b - '0');
+				inNumber = true;
+			} else if(b == ',' || b == '\n' || b == '\r'){
+				if(inNumber){
+					if(fromId == -1)
+						fromId = value;
+					else
+						edges.add(fromId, value);
+				} else if(b == ','){
+					throw malformed("hypernyms", pos);
+				}
+				if(b != ',')
+					fromId = -1;
+				value = 0;
+				inNumber = false;
+			} else if(b != ' '){
+				throw malformed("hypernyms", pos);
+			}
+		}
+		return edges;
+	}
+
+	/*
+	 * Maps a whole file read-only
+	 */
+	private static ByteBuffer map(Path path) throws IOException{
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+			long size = channel.size();
+			if(size > Integer.MAX_VALUE)
+				throw new IllegalArgumentException(path + " is too large to map");
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			return buffer;
+		}
+	}
+
+	/*
+	 * Decodes the UTF-8 bytes between the given offsets
+	 */
+	static String decode(ByteBuffer data, int start, int end){
+		byte[] bytes = new byte[end - start];
+		for(int i = 0; i < bytes.length; i++){
+			bytes[i] = data.get(start + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static IllegalArgumentException malformed(String file, int pos){
+		return new IllegalArgumentException("Malformed " + file + " input at byte " + pos);
+	}
+}
@@ -0,0 +1,221 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/*
+ * Search and cache counters for one WordNet, exported as a JMX MBean
+ *
+ * Every counter is a LongAdder or an atomic histogram slot, so recording a search from many threads
+ * never contends on a lock. Latencies go into power-of-two buckets, which bounds the histogram to 64
+ * slots while keeping percentiles within a factor of two. Searches slower than the threshold are
+ * logged at WARNING with their noun pair and kept in a short ring for getSlowQueries().
+ */
+public final class WordNetMetrics implements QueryListener, WordNetMetricsMBean {
+	private static final Logger SLOW_QUERY_LOG = Logger.getLogger("WordNet.slowQueries");
+	private static final int SLOW_QUERY_ENTRIES = 64;		// slow queries kept for getSlowQueries()
+
+	private final PairCache cache;
+	private final LongAdder searches = new LongAdder();
+	private final LongAdder visited = new LongAdder();
+	private final LongAdder fanOut = new LongAdder();
+	private final LongAdder searchNanos = new LongAdder();
+	private final AtomicLongArray latency = new AtomicLongArray(64);		// searches by floor(log2(nanos))
+	private final ArrayDeque<String> slowQueries = new ArrayDeque<>();		// most recent slow queries, guarded by itself
+	private volatile long slowQueryNanos;		// threshold for the slow-query log; 0 when disabled
+
+	private volatile long parseNanos;
+	private volatile long graphNanos;
+	private volatile long dictionaryNanos;
+	private volatile long validationNanos;
+	private volatile long indexNanos;
+
+	/*
+	 * Creates metrics that report the given cache's counters alongside the search counters
+	 */
+	WordNetMetrics(PairCache cache, long slowQueryNanos){
+		this.cache = cache;
+		this.slowQueryNanos = slowQueryNanos;
+	}
+
+	/*
+	 * Registers these metrics with the platform MBean server under the given object name
+	 */
+	public ObjectName register(String name) throws JMException{
+		ObjectName objectName = new ObjectName(name);
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		return objectName;
+	}
+
+	@Override
+	public void searched(String nounA, String nounB, int fanOut, long visited, long nanos){
+		searches.increment();
+		this.visited.add(visited);
+		this.fanOut.add(fanOut);
+		searchNanos.add(nanos);
+		latency.incrementAndGet(63 - Long.numberOfLeadingZeros(Math.max(1, nanos)));
+
+		long threshold = slowQueryNanos;
+		if(threshold > 0 && nanos >= threshold){
+			String entry = nounA + " " + nounB + ": " + (nanos / 1000) + " us, fan-out " + fanOut + ", visited " + visited;
+			synchronized(slowQueries){
+				if(slowQueries.size() == SLOW_QUERY_ENTRIES)
+					slowQueries.removeFirst();
+				slowQueries.addLast(entry);
+			}
+			SLOW_QUERY_LOG.warning("Slow query " + entry);
+		}
+	}
+
+	@Override
+	public void loaded(long parseNanos, long graphNanos, long dictionaryNanos, long validationNanos, long indexNanos){
+		this.parseNanos = parseNanos;
+		this.graphNanos = graphNanos;
+		this.dictionaryNanos = dictionaryNanos;
+		this.validationNanos = validationNanos;
+		this.indexNanos = indexNanos;
+	}
+
+	@Override
+	public long getSearches(){
+		return searches.sum();
+	}
+
+	@Override
+	public double getMeanVisited(){
+		long count = searches.sum();
+		return (count == 0) ? 0 : (double) visited.sum() / count;
+	}
+
+	@Override
+	public double getMeanFanOut(){
+		long count = searches.sum();
+		return (count == 0) ? 0 : (double) fanOut.sum() / count;
+	}
+
+	@Override
+	public double getMeanSearchMicros(){
+		long count = searches.sum();
+		return (count == 0) ? 0 : searchNanos.sum() / 1000.0 / count;
+	}
+
+	@Override
+	public long[] getLatencyHistogram(){
+		long[] counts = new long[latency.length()];
+		for(int i = 0; i < counts.length; i++){
+			counts[i] = latency.get(i);
+		}
+		return counts;
+	}
+
+	@Override
+	public long latencyPercentileMicros(double percentile){
+		if(percentile < 0 || percentile > 100)
+			throw new IllegalArgumentException("Percentile must be between 0 and 100");
+
+		long[] counts = getLatencyHistogram();
+		long total = 0;
+		for(long c : counts){
+			total += c;
+		}
+		if(total == 0)
+			return 0;
+
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+		long seen = 0;
+		int bucket = 0;
+		while(seen + counts[bucket] < rank){
+			seen += counts[bucket++];
+		}
+		return (bucket >= 62) ? Long.MAX_VALUE / 1000 : (2L << bucket) / 1000;
+	}
+
+	@Override
+	public long getCacheHits(){
+		return cache.hits();
+	}
+
+	@Override
+	public long getCacheMisses(){
+		return cache.misses();
+	}
+
+	@Override
+	public long getCacheEvictions(){
+		return cache.evictions();
+	}
+
+	@Override
+	public double getCacheHitRate(){
+		long hits = cache.hits();
+		long lookups = hits + cache.misses();
+		return (lookups == 0) ? 0 : (double) hits / lookups;
+	}
+
+	@Override
+	public long getCacheSize(){
+		return cache.size();
+	}
+
+	@Override
+	public long getParseMillis(){
+		return TimeUnit.NANOSECONDS.toMillis(parseNanos);
+	}
+
+	@Override
+	public long getGraphMillis(){
+		return TimeUnit.NANOSECONDS.toMillis(graphNanos);
+	}
+
+	@Override
+	public long getDictionaryMillis(){
+		return TimeUnit.NANOSECONDS.toMillis(dictionaryNanos);
+	}
+
+	@Override
+	public long getValidationMillis(){
+		return TimeUnit.NANOSECONDS.toMillis(validationNanos);
+	}
+
+	@Override
+	public long getIndexMillis(){
+		return TimeUnit.NANOSECONDS.toMillis(indexNanos);
+	}
+
+	@Override
+	public long getSlowQueryMillis(){
+		return TimeUnit.NANOSECONDS.toMillis(slowQueryNanos);
+	}
+
+	@Override
+	public void setSlowQueryMillis(long millis){
+		if(millis < 0)
+			throw new IllegalArgumentException("Threshold must not be negative");
+		slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+
+	@Override
+	public String[] getSlowQueries(){
+		synchronized(slowQueries){
+			return slowQueries.toArray(new String[0]);
+		}
+	}
+
+	@Override
+	public void reset(){
+		searches.reset();
+		visited.reset();
+		fanOut.reset();
+		searchNanos.reset();
+		for(int i = 0; i < latency.length(); i++){
+			latency.set(i, 0);
+		}
+		synchronized(slowQueries){
+			slowQueries.clear();
+		}
+	}
+}
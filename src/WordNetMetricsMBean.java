@@ -0,0 +1,60 @@
+/*
+ * JMX view of a WordNetMetrics; times are in microseconds unless the name says otherwise
+ */
+public interface WordNetMetricsMBean {
+
+	long getSearches();
+
+	double getMeanVisited();
+
+	double getMeanFanOut();
+
+	double getMeanSearchMicros();
+
+	/*
+	 * Searches by latency: entry i counts searches that took between 2^i and 2^(i+1) nanoseconds
+	 */
+	long[] getLatencyHistogram();
+
+	/*
+	 * Upper bound of the latency histogram bucket holding the given percentile, 0 to 100
+	 */
+	long latencyPercentileMicros(double percentile);
+
+	long getCacheHits();
+
+	long getCacheMisses();
+
+	long getCacheEvictions();
+
+	double getCacheHitRate();
+
+	long getCacheSize();
+
+	long getParseMillis();
+
+	long getGraphMillis();
+
+	long getDictionaryMillis();
+
+	long getValidationMillis();
+
+	long getIndexMillis();
+
+	/*
+	 * Searches taking at least this long are logged with their noun pair; 0 disables the slow-query log
+	 */
+	long getSlowQueryMillis();
+
+	void setSlowQueryMillis(long millis);
+
+	/*
+	 * The most recent slow queries, oldest first
+	 */
+	String[] getSlowQueries();
+
+	/*
+	 * Clears the search counters, histogram and slow-query log; the cache counters belong to the cache
+	 */
+	void reset();
+}
@@ -0,0 +1,225 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Optional settings for constructing a WordNet
+ * Every setting defaults to the behaviour of the plain two-argument WordNet constructor
+ */
+public class WordNetOptions {
+	static final long DEFAULT_CACHE_ENTRIES = 100000;
+	static final long DEFAULT_REACHABILITY_BYTES = 16L << 20;
+
+	private boolean ancestorIndex;		// precompute every synset's ancestor row at construction time
+	private PairCache cache;			// cache of computed noun pairs; each WordNet gets its own bounded LRU cache if not set
+	private long cacheEntries = DEFAULT_CACHE_ENTRIES;	// bound of the default LRU cache
+	private boolean offHeapDictionary;	// keep the noun dictionary in direct buffers instead of heap arrays
+	private long reachabilityBytes = DEFAULT_REACHABILITY_BYTES;	// largest is-a index to build; 0 disables it
+	private boolean normalizeNouns;		// let queries match nouns regardless of case and spaces versus underscores
+	private String resultStore;			// directory of the persistent result store; null to keep results in memory only
+	private Executor executor;			// runs asynchronous queries; a shared bounded pool if not set
+	private boolean metrics;			// record search and load metrics in a WordNetMetrics
+	private long slowQueryNanos;		// searches at least this slow go to the slow-query log; 0 disables it
+	private final List<QueryListener> listeners = new ArrayList<>();	// notified of every search besides the metrics
+
+	/*
+	 * Enables or disables the precomputed ancestor index
+	 * Building it adds to startup time and heap, but answers SAP queries by merging two sorted rows
+	 */
+	public WordNetOptions setAncestorIndex(boolean enabled){
+		this.ancestorIndex = enabled;
+		return this;
+	}
+
+	/*
+	 * Returns whether the ancestor index should be built
+	 */
+	public boolean isAncestorIndexEnabled(){
+		return ancestorIndex;
+	}
+
+	/*
+	 * Enables or disables keeping the noun dictionary in direct, off-heap buffers
+	 * Dictionaries opened from a snapshot are always read from the mapped file instead
+	 */
+	public WordNetOptions setOffHeapDictionary(boolean enabled){
+		this.offHeapDictionary = enabled;
+		return this;
+	}
+
+	/*
+	 * Returns whether the noun dictionary should be kept off-heap
+	 */
+	public boolean isOffHeapDictionaryEnabled(){
+		return offHeapDictionary;
+	}
+
+	/*
+	 * Bounds the is-a index to the given number of bytes; if the labels would not fit, isA() searches the graph instead
+	 * 0 disables the index
+	 */
+	public WordNetOptions setReachabilityIndexBytes(long maxBytes){
+		if(maxBytes < 0)
+			throw new IllegalArgumentException("Byte bound must not be negative");
+		this.reachabilityBytes = maxBytes;
+		return this;
+	}
+
+	/*
+	 * Returns the largest is-a index to build, in bytes
+	 */
+	public long getReachabilityIndexBytes(){
+		return reachabilityBytes;
+	}
+
+	/*
+	 * Enables or disables normalized noun matching in queries
+	 * When enabled, a noun that is not found as given is looked up again in lower case with spaces and
+	 * underscores folded, so "Ice Cream" finds "ice_cream"; exact matches are always tried first
+	 */
+	public WordNetOptions setNormalizeNouns(boolean enabled){
+		this.normalizeNouns = enabled;
+		return this;
+	}
+
+	/*
+	 * Returns whether queries fall back to normalized noun matching
+	 */
+	public boolean isNormalizeNounsEnabled(){
+		return normalizeNouns;
+	}
+
+	/*
+	 * Keeps computed results in a persistent store in the given directory as well as in the cache
+	 * Results of the loaded taxonomy are appended in the background and read back after a restart, whether it
+	 * is loaded from text or from a snapshot; results stored for a different taxonomy are discarded. Results of
+	 * updated taxonomies are never stored
+	 */
+	public WordNetOptions setResultStore(String directory){
+		if(directory == null)
+			throw new NullPointerException("Argument given was null");
+		this.resultStore = directory;
+		return this;
+	}
+
+	/*
+	 * Returns the directory of the persistent result store, or null if there is none
+	 */
+	public String getResultStore(){
+		return resultStore;
+	}
+
+	/*
+	 * Sets the cache used for computed noun pairs, replacing the default bounded LRU cache
+	 */
+	public WordNetOptions setCache(PairCache cache){
+		if(cache == null)
+			throw new NullPointerException("Argument given was null");
+		this.cache = cache;
+		return this;
+	}
+
+	/*
+	 * Bounds the default LRU cache to at most the given number of entries
+	 */
+	public WordNetOptions setCacheEntries(long maxEntries){
+		if(maxEntries < 1)
+			throw new IllegalArgumentException("Cache must hold at least one entry");
+		this.cache = null;
+		this.cacheEntries = maxEntries;
+		return this;
+	}
+
+	/*
+	 * Bounds the default LRU cache to an estimated heap footprint of at most the given number of bytes
+	 */
+	public WordNetOptions setCacheBytes(long maxBytes){
+		return setCacheEntries(Math.max(1, maxBytes / LruPairCache.ENTRY_BYTES));
+	}
+
+	/*
+	 * Returns the cache set by the caller, or null if each WordNet is to create its own default LRU cache
+	 * A cache set here is shared by every WordNet built with these options, so it should only be set for one
+	 */
+	public PairCache getCache(){
+		return cache;
+	}
+
+	/*
+	 * Returns the number of entries the default LRU cache is bounded to
+	 */
+	public long getCacheEntries(){
+		return cacheEntries;
+	}
+
+	/*
+	 * Sets the executor that asynchronous queries run on when the caller does not supply one
+	 */
+	public WordNetOptions setExecutor(Executor executor){
+		if(executor == null)
+			throw new NullPointerException("Argument given was null");
+		this.executor = executor;
+		return this;
+	}
+
+	/*
+	 * Returns the executor for asynchronous queries, the shared bounded pool if none was set
+	 */
+	public Executor getExecutor(){
+		return (executor == null) ? AsyncQueries.defaultExecutor() : executor;
+	}
+
+	/*
+	 * Enables or disables the built-in metrics, available from WordNet.metrics() and exportable over JMX
+	 * When neither metrics nor listeners are configured, searches are not timed at all
+	 */
+	public WordNetOptions setMetricsEnabled(boolean enabled){
+		this.metrics = enabled;
+		return this;
+	}
+
+	/*
+	 * Returns whether the built-in metrics should be recorded
+	 */
+	public boolean isMetricsEnabled(){
+		return metrics;
+	}
+
+	/*
+	 * Logs searches that take at least the given time, with their noun pair; enables the metrics
+	 */
+	public WordNetOptions setSlowQueryThreshold(long threshold, TimeUnit unit){
+		if(unit == null)
+			throw new NullPointerException("Argument given was null");
+		if(threshold <= 0)
+			throw new IllegalArgumentException("Threshold must be positive");
+		this.slowQueryNanos = unit.toNanos(threshold);
+		this.metrics = true;
+		return this;
+	}
+
+	/*
+	 * Returns the slow-query threshold in nanoseconds, 0 if slow queries are not logged
+	 */
+	public long getSlowQueryNanos(){
+		return slowQueryNanos;
+	}
+
+	/*
+	 * Adds a listener to be called after every search
+	 */
+	public WordNetOptions addQueryListener(QueryListener listener){
+		if(listener == null)
+			throw new NullPointerException("Argument given was null");
+		listeners.add(listener);
+		return this;
+	}
+
+	/*
+	 * Returns the listeners added so far
+	 */
+	public List<QueryListener> getQueryListeners(){
+		return new ArrayList<>(listeners);
+	}
+}
@@ -0,0 +1,229 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+ * Line-protocol query server for one shared WordNet, so many processes on a host can use a single loaded copy
+ *
+ * Each request is one line of space-separated words and each gets exactly one response line, in order:
+ *   DISTANCE nounA nounB             -> OK distance
+ *   SAP nounA nounB                  -> OK ancestor synset
+ *   ISNOUN word                      -> OK true|false
+ *   OUTCAST noun noun ...            -> OK noun
+ *   DISTANCES a1 b1 a2 b2 ...        -> OK d1 d2 ...
+ *   PING                             -> OK
+ *   QUIT                             -> closes the connection
+ * Failures answer "ERR message" and leave the connection open. Nouns never contain spaces.
+ *
+ * Requests may be pipelined: responses are buffered and flushed only when no further request is
+ * waiting, so a client sending many lines gets its answers in few packets. Each connection is served
+ * by its own thread, a virtual thread on runtimes that have them and a pooled thread otherwise.
+ */
+public class WordNetServer implements Closeable {
+	private static final long MIN_BACKOFF_MILLIS = 10;		// first pause after a failed accept
+	private static final long MAX_BACKOFF_MILLIS = 1000;	// longest pause while accepts keep failing
+
+	private final WordNet wordNet;
+	private final Outcast outcast;
+	private final ServerSocket socket;
+	private final ExecutorService connections;		// one task per open connection
+	private final Set<Socket> open = ConcurrentHashMap.newKeySet();		// connections to close on shutdown
+	private final Thread acceptor;
+
+	/*
+	 * Starts serving the given WordNet on a loopback port; port 0 picks a free one
+	 */
+	public WordNetServer(WordNet wordNet, int port) throws IOException{
+		if(wordNet == null)
+			throw new NullPointerException("Argument given was null");
+
+		this.wordNet = wordNet;
+		this.outcast = new Outcast(wordNet);
+		this.socket = new ServerSocket();
+		this.socket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+		this.connections = connectionExecutor();
+		this.acceptor = new Thread(this::acceptLoop, "wordnet-server-accept");
+		this.acceptor.start();
+	}
+
+	/*
+	 * Returns the port the server listens on
+	 */
+	public int port(){
+		return socket.getLocalPort();
+	}
+
+	/*
+	 * Stops accepting connections and closes the open ones
+	 */
+	@Override
+	public void close() throws IOException{
+		socket.close();
+		for(Socket connection : open){
+			connection.close();
+		}
+		connections.shutdownNow();
+	}
+
+	/*
+	 * Answers one request line; never throws for bad input, which is reported as an ERR line instead
+	 */
+	String handle(String line){
+		String[] words = line.trim().split(" +");
+		try{
+			switch(words[0].toUpperCase(Locale.ROOT)){
+			case "DISTANCE":
+				expectArguments(words, 2);
+				return "OK " + wordNet.distance(words[1], words[2]);
+			case "SAP":
+				expectArguments(words, 2);
+				return "OK " + wordNet.sap(words[1], words[2]);
+			case "ISNOUN":
+				expectArguments(words, 1);
+				return "OK " + wordNet.isNoun(words[1]);
+			case "OUTCAST":
+				if(words.length < 2)
+					throw new IllegalArgumentException("OUTCAST needs at least one noun");
+				String[] nouns = new String[words.length - 1];
+				System.arraycopy(words, 1, nouns, 0, nouns.length);
+				return "OK " + outcast.outcast(nouns);
+			case "DISTANCES":
+				if(words.length % 2 != 1)
+					throw new IllegalArgumentException("DISTANCES needs pairs of nouns");
+				String[] nounsA = new String[words.length / 2];
+				String[] nounsB = new String[nounsA.length];
+				for(int i = 0; i < nounsA.length; i++){
+					nounsA[i] = words[1 + 2 * i];
+					nounsB[i] = words[2 + 2 * i];
+				}
+				StringBuilder response = new StringBuilder("OK");
+				for(int d : wordNet.distances(nounsA, nounsB)){
+					response.append(' ').append(d);
+				}
+				return response.toString();
+			case "PING":
+				return "OK";
+			default:
+				return "ERR unknown command " + words[0];
+			}
+		} catch(IllegalArgumentException e){
+			return "ERR " + e.getMessage();
+		}
+	}
+
+	/*
+	 * Accepts connections until close()
+	 * A failing accept, such as when the process is out of file descriptors, is retried after a pause that
+	 * doubles while the failures last, so a persistent error does not spin the thread
+	 */
+	private void acceptLoop(){
+		long backoff = 0;
+		while(!socket.isClosed()){
+			Socket client;
+			try{
+				client = socket.accept();
+			} catch(IOException e){
+				if(socket.isClosed())
+					return;
+				backoff = (backoff == 0) ? MIN_BACKOFF_MILLIS : Math.min(MAX_BACKOFF_MILLIS, backoff * 2);
+				try{
+					Thread.sleep(backoff);
+				} catch(InterruptedException interrupted){
+					return;
+				}
+				continue;
+			}
+			backoff = 0;
+
+			try{
+				client.setTcpNoDelay(true);
+				connections.execute(() -> serve(client));
+			} catch(IOException e){
+				// The connection broke before it could be served
+				try{
+					client.close();
+				} catch(IOException ignored){
+					// Nothing more to release
+				}
+			}
+		}
+	}
+
+	/*
+	 * Reads requests until the client quits or disconnects, flushing only when the input runs dry
+	 */
+	private void serve(Socket client){
+		// Registered before anything can block, and dropped if close() ran before it could see the connection
+		open.add(client);
+		try(Socket connection = client;
+				BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+				Writer out = new BufferedWriter(new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8), 1 << 16)){
+			if(socket.isClosed())
+				return;
+			String line;
+			while((line = in.readLine()) != null){
+				if(line.trim().equalsIgnoreCase("QUIT"))
+					break;
+				if(line.trim().isEmpty())
+					continue;
+
+				out.write(handle(line));
+				out.write('\n');
+				if(!in.ready())
+					out.flush();
+			}
+		} catch(IOException e){
+			// The client went away; its connection is closed above
+		} finally{
+			open.remove(client);
+		}
+	}
+
+	private static void expectArguments(String[] words, int count){
+		if(words.length != count + 1)
+			throw new IllegalArgumentException(words[0] + " needs " + count + (count == 1 ? " argument" : " arguments"));
+	}
+
+	/*
+	 * Returns a virtual-thread-per-task executor when the runtime provides one, otherwise a cached thread pool
+	 * The lookup is reflective so the server still builds and runs on Java 8
+	 */
+	private static ExecutorService connectionExecutor(){
+		try{
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch(ReflectiveOperationException e){
+			return Executors.newCachedThreadPool(task -> {
+				Thread thread = new Thread(task, "wordnet-server-connection");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	/*
+	 * Usage: WordNetServer synsets hypernyms [port]
+	 */
+	public static void main(String[] args) throws IOException{
+		String synsets = args.length > 0 ? args[0] : "synsets.txt";
+		String hypernyms = args.length > 1 ? args[1] : "hypernyms.txt";
+		int port = args.length > 2 ? Integer.parseInt(args[2]) : 7878;
+
+		WordNet wn = new WordNet(synsets, hypernyms);
+		WordNetServer server = new WordNetServer(wn, port);
+		System.out.println("Serving " + synsets + " on 127.0.0.1:" + server.port());
+	}
+}
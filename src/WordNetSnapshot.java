@@ -0,0 +1,286 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/*
+ * Versioned, checksummed binary image of a loaded WordNet
+ *
+ * Layout, all integers big-endian and every section 4-byte aligned:
+ *   header   magic, version, body length (long), CRC32 of the body (long), taxonomy checksum (long)
+ *   graph    V, E, hypernym offsets[V+1], hypernym targets[E], hyponym offsets[V+1], hyponym sources[E]
+ *   nouns    count, offsets[count+1], byte length, UTF-8 bytes (padded), in noun id order
+ *   sorted   noun ids[count] in byte order
+ *   postings offsets[count+1], total, synset ids[total]
+ *   synsets  offsets[V+1], total, noun ids[total]
+ *   index    flag; if 1: entries, offsets[V+1], ids[entries], distances[entries] as shorts (padded)
+ *
+ * A snapshot is opened with FileChannel.map, so processes on one host share the file through the
+ * page cache. The graph and index arrays are bulk-copied out of the mapping; the noun dictionary is
+ * served in place from views of the mapped buffer.
+ */
+final class WordNetSnapshot {
+	static final int MAGIC = 0x574E5350;		// "WNSP"
+	static final int VERSION = 3;
+	private static final int HEADER_BYTES = 32;
+
+	/* --- Sections read back from an opened snapshot --- */
+	CompactDigraph graph;
+	NounDictionary dictionary;
+	AncestorIndex ancestorIndex;
+	long bytes;		// size of the snapshot file
+	long nanos;		// wall-clock time taken to open it
+	long checksum;	// taxonomyChecksum() of the graph and nouns it holds, recorded when it was written
+
+	/*
+	 * Writes a snapshot of the given parts to the file, replacing it if it exists
+	 * The snapshot is written beside the file and moved over it, so processes that still map the old file keep
+	 * reading it intact, and a crash leaves one whole snapshot or the other
+	 */
+	static void write(Path file, CompactDigraph graph, NounDictionary dictionary, AncestorIndex index) throws IOException{
+		// A unique name, so writers racing to the same path never truncate each other's file
+		Path temporary = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+		try{
+			writeBody(temporary, graph, dictionary, index);
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally{
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	private static void writeBody(Path file, CompactDigraph graph, NounDictionary dictionary, AncestorIndex index) throws IOException{
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+			channel.position(HEADER_BYTES);
+
+			CRC32 crc = new CRC32();
+			CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), crc);
+			DataOutputStream out = new DataOutputStream(checked);
+
+			out.writeInt(graph.numVertices());
+			out.writeInt(graph.numEdges());
+			writeInts(out, graph.hypernymOffsets());
+			writeInts(out, graph.hypernymTargets());
+			writeInts(out, graph.hyponymOffsets());
+			writeInts(out, graph.hyponymSources());
+
+			writeArena(out, dictionary.nouns());
+			writeInts(out, dictionary.sorted());
+			writeInts(out, dictionary.postingOffsets());
+			out.writeInt(dictionary.postings().limit());
+			writeInts(out, dictionary.postings());
+			writeInts(out, dictionary.synsetOffsets());
+			out.writeInt(dictionary.synsetNouns().limit());
+			writeInts(out, dictionary.synsetNouns());
+
+			if(index == null){
+				out.writeInt(0);
+			} else{
+				out.writeInt(1);
+				out.writeInt(index.numEntries());
+				writeInts(out, index.offsets());
+				writeInts(out, index.ids());
+				for(short d : index.dists()){
+					out.writeShort(d);
+				}
+				pad(out, 2 * index.numEntries());
+			}
+			out.flush();
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			header.putInt(MAGIC).putInt(VERSION).putLong(out.size()).putLong(crc.getValue()).putLong(taxonomyChecksum(graph, dictionary));
+			header.flip();
+			channel.write(header, 0);
+			channel.force(true);
+		}
+	}
+
+	/*
+	 * Maps a snapshot file, verifies its header and checksum, and reads its sections
+	 */
+	static WordNetSnapshot open(Path file) throws IOException{
+		long startTime = System.nanoTime();
+		ByteBuffer data;
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+			if(channel.size() > Integer.MAX_VALUE)
+				throw new IllegalArgumentException(file + " is too large to map");
+			data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+
+		if(data.limit() < HEADER_BYTES || data.getInt(0) != MAGIC)
+			throw new IllegalArgumentException(file + " is not a WordNet snapshot");
+		if(data.getInt(4) != VERSION)
+			throw new IllegalArgumentException(file + " has snapshot version " + data.getInt(4) + ", expected " + VERSION);
+		long bodyBytes = data.getLong(8);
+		if(bodyBytes != data.limit() - HEADER_BYTES)
+			throw new IllegalArgumentException(file + " is truncated");
+
+		ByteBuffer body = slice(data, HEADER_BYTES, (int) bodyBytes);
+		CRC32 crc = new CRC32();
+		crc.update(body.duplicate());
+		if(crc.getValue() != data.getLong(16))
+			throw new IllegalArgumentException(file + " failed its checksum");
+
+		WordNetSnapshot snapshot = new WordNetSnapshot();
+		snapshot.bytes = data.limit();
+		snapshot.checksum = data.getLong(24);
+		Reader in = new Reader(body);
+
+		int V = in.readInt();
+		int E = in.readInt();
+		int[] hypernymOffsets = in.readInts(V + 1);
+		int[] hypernymTargets = in.readInts(E);
+		int[] hyponymOffsets = in.readInts(V + 1);
+		int[] hyponymSources = in.readInts(E);
+		snapshot.graph = new CompactDigraph(hypernymOffsets, hypernymTargets, hyponymOffsets, hyponymSources);
+
+		StringArena nouns = in.readArena();
+		IntBuffer sorted = in.readIntView(nouns.size());
+		IntBuffer postingOffsets = in.readIntView(nouns.size() + 1);
+		IntBuffer postings = in.readIntView(in.readInt());
+		IntBuffer synsetOffsets = in.readIntView(V + 1);
+		IntBuffer synsetNouns = in.readIntView(in.readInt());
+		snapshot.dictionary = new NounDictionary(nouns, sorted, postingOffsets, postings, synsetOffsets, synsetNouns);
+
+		if(in.readInt() == 1){
+			int entries = in.readInt();
+			int[] offsets = in.readInts(V + 1);
+			int[] ids = in.readInts(entries);
+			short[] dists = new short[entries];
+			in.slice(2 * entries).asShortBuffer().get(dists);
+			snapshot.ancestorIndex = new AncestorIndex(offsets, ids, dists, 0);
+		}
+		snapshot.nanos = System.nanoTime() - startTime;
+		return snapshot;
+	}
+
+	/*
+	 * Returns a CRC32 of the hypernym edges, the nouns in id order and the nouns of each synset
+	 * It depends only on the taxonomy, so a WordNet loaded from text and one opened from its snapshot agree on it
+	 */
+	static long taxonomyChecksum(CompactDigraph graph, NounDictionary dictionary){
+		CRC32 crc = new CRC32();
+		OutputStream discard = new OutputStream(){
+			@Override
+			public void write(int b){
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len){
+			}
+		};
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(discard, crc), 1 << 16));
+		try{
+			out.writeInt(graph.numVertices());
+			writeInts(out, graph.hypernymOffsets());
+			writeInts(out, graph.hypernymTargets());
+			writeArena(out, dictionary.nouns());
+			writeInts(out, dictionary.synsetOffsets());
+			writeInts(out, dictionary.synsetNouns());
+			out.flush();
+		} catch(IOException e){
+			throw new UncheckedIOException(e);		// the stream discards its bytes and cannot fail
+		}
+		return crc.getValue();
+	}
+
+	private static void writeInts(DataOutputStream out, int[] values) throws IOException{
+		for(int v : values){
+			out.writeInt(v);
+		}
+	}
+
+	private static void writeInts(DataOutputStream out, IntBuffer values) throws IOException{
+		for(int i = 0, n = values.limit(); i < n; i++){
+			out.writeInt(values.get(i));
+		}
+	}
+
+	private static void writeArena(DataOutputStream out, StringArena arena) throws IOException{
+		out.writeInt(arena.size());
+		writeInts(out, arena.offsets());
+
+		int length = arena.byteSize();
+		out.writeInt(length);
+		ByteBuffer bytes = arena.bytes();
+		for(int i = 0; i < length; i++){
+			out.write(bytes.get(i));
+		}
+		pad(out, length);
+	}
+
+	/*
+	 * Pads a section of the given length to a multiple of 4 bytes
+	 */
+	private static void pad(OutputStream out, int length) throws IOException{
+		for(int i = length; (i & 3) != 0; i++){
+			out.write(0);
+		}
+	}
+
+	private static ByteBuffer slice(ByteBuffer data, int start, int length){
+		ByteBuffer view = data.duplicate();
+		view.position(start);
+		view.limit(start + length);
+		return view.slice();
+	}
+
+	/*
+	 * Sequential reader over the body of a mapped snapshot
+	 */
+	private static final class Reader {
+		private final ByteBuffer body;
+		private int pos;
+
+		Reader(ByteBuffer body){
+			this.body = body;
+		}
+
+		int readInt(){
+			int v = body.getInt(pos);
+			pos += 4;
+			return v;
+		}
+
+		int[] readInts(int count){
+			int[] values = new int[count];
+			slice(4 * count).asIntBuffer().get(values);
+			return values;
+		}
+
+		/*
+		 * Returns a view of the next count integers, without copying them out of the mapping
+		 */
+		IntBuffer readIntView(int count){
+			return slice(4 * count).asIntBuffer();
+		}
+
+		/*
+		 * Returns a string arena whose buffers are views of the mapping, not copies
+		 */
+		StringArena readArena(){
+			int count = readInt();
+			IntBuffer offsets = readIntView(count + 1);
+			int length = readInt();
+			ByteBuffer bytes = slice(length);
+			pos += (4 - (length & 3)) & 3;
+			return new StringArena(bytes, offsets);
+		}
+
+		ByteBuffer slice(int length){
+			ByteBuffer view = WordNetSnapshot.slice(body, pos, length);
+			pos += length;
+			return view;
+		}
+	}
+}
@@ -0,0 +1,112 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Stress check for a shared WordNet: hammers one instance from many threads and compares every
+ * answer against a single-threaded run over the same noun pairs
+ */
+public class WordNetStress {
+
+	/*
+	 * Usage: WordNetStress [threads] [pairs] [rounds]
+	 */
+	public static void main(String[] args) throws Exception{
+		int threadCount = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		int pairCount = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+		WordNet wn = new WordNet("synsets.txt", "hypernyms.txt");
+		ArrayList<String> nouns = new ArrayList<>();
+		for(String noun : wn.nouns()){
+			nouns.add(noun);
+		}
+
+		// Draw pairs from a fixed seed and record the single-threaded answers
+		Random random = new Random(42);
+		String[] nounsA = new String[pairCount];
+		String[] nounsB = new String[pairCount];
+		int[] expectedDistance = new int[pairCount];
+		for(int i = 0; i < pairCount; i++){
+			nounsA[i] = nouns.get(random.nextInt(nouns.size()));
+			nounsB[i] = nouns.get(random.nextInt(nouns.size()));
+			expectedDistance[i] = wn.distance(nounsA[i], nounsB[i]);
+		}
+
+		// Equal-length paths may meet at different ancestors depending on which order computed the pair
+		// first, so record every common ancestor at exactly the expected distance
+		SAP.AncestorTable[] tablesA = wn.ancestorTables(nounsA);
+		SAP.AncestorTable[] tablesB = wn.ancestorTables(nounsB);
+		ArrayList<Set<String>> expectedAncestors = new ArrayList<>(pairCount);
+		for(int i = 0; i < pairCount; i++){
+			expectedAncestors.add(ancestorsAt(wn, tablesA[i], tablesB[i], expectedDistance[i]));
+		}
+
+		// Start cold so the threads race on cache misses as well as hits
+		wn.cache().clear();
+
+		ExecutorService pool = Executors.newFixedThreadPool(threadCount);
+		AtomicInteger mismatches = new AtomicInteger();
+		ArrayList<Future<?>> running = new ArrayList<>();
+		long startTime = System.nanoTime();
+
+		for(int t = 0; t < threadCount; t++){
+			long seed = t;
+			running.add(pool.submit(() -> {
+				Random order = new Random(seed);
+				for(int r = 0; r < rounds * pairCount; r++){
+					int i = order.nextInt(pairCount);
+					// Alternate argument order to exercise the symmetric cache key
+					boolean swap = order.nextBoolean();
+					String a = swap ? nounsB[i] : nounsA[i];
+					String b = swap ? nounsA[i] : nounsB[i];
+
+					if(wn.distance(a, b) != expectedDistance[i])
+						mismatches.incrementAndGet();
+					if(!expectedAncestors.get(i).contains(wn.sap(a, b)))
+						mismatches.incrementAndGet();
+				}
+			}));
+		}
+		for(Future<?> f : running){
+			f.get();
+		}
+		pool.shutdown();
+
+		long endTime = System.nanoTime();
+		long queries = 2L * threadCount * rounds * pairCount;
+		System.out.println("Threads: " + threadCount + ", queries: " + queries + ", mismatches: " + mismatches.get());
+		System.out.println("Throughput (queries/s): " + (queries * 1000000000L / (endTime - startTime)));
+		System.out.println("Cache hits/misses/evictions: " + wn.cache().hits() + "/" + wn.cache().misses() + "/" + wn.cache().evictions());
+
+		if(mismatches.get() != 0)
+			throw new IllegalStateException("Concurrent results differ from the single-threaded run");
+	}
+
+	/*
+	 * Returns the synsets that are ancestors of both tables' vertices at a combined distance of exactly distance
+	 */
+	private static Set<String> ancestorsAt(WordNet wn, SAP.AncestorTable a, SAP.AncestorTable b, int distance){
+		Set<String> ancestors = new HashSet<>();
+		int i = 0;
+		int j = 0;
+		while(i < a.ids.length && j < b.ids.length){
+			if(a.ids[i] < b.ids[j]){
+				i++;
+			} else if(a.ids[i] > b.ids[j]){
+				j++;
+			} else{
+				if(a.dists[i] + b.dists[j] == distance)
+					ancestors.add(wn.synset(a.ids[i]));
+				i++;
+				j++;
+			}
+		}
+		return ancestors;
+	}
+}